@@ -0,0 +1,105 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ *   The lock free hand-overs between the threads of a wheel, one producer
+ *   and one consumer thread each: values from the render thread to a
+ *   sample stream consumer (under both overflow policies) and touch
+ *   samples from the UI thread to the render thread. The listener calls
+ *   themselves go through the Android message queue and are not covered.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueDispatchBenchmark
+{
+   private static final int BATCH = 64;
+
+   @State(Scope.Group)
+   public static class ValueStream
+   {
+      @Param({"0", "1"})
+      public int overflowPolicy;
+
+      private ValueSampleStream mmStream;
+      // Consumer side only
+      private final long[] mmTimes = new long[BATCH];
+      private final float[] mmValues = new float[BATCH];
+      // Producer side only
+      private long mmTime = 0;
+
+      @Setup
+      public void setup()
+      {
+         mmStream = new ValueSampleStream(256, overflowPolicy);
+      }
+   }
+
+   @State(Scope.Group)
+   public static class TouchBuffer implements TouchRingBuffer.Sink
+   {
+      private final TouchRingBuffer mmBuffer = new TouchRingBuffer(256);
+      // Consumer side only
+      private float mmSum = 0.0f;
+      // Producer side only
+      private long mmTime = 0;
+
+      @Override
+      public void onTouchSample(int action, float position, long timeNanos)
+      {
+         mmSum += position;
+      }
+   }
+
+   @Benchmark
+   @Group("valueStream")
+   @GroupThreads(1)
+   public boolean offerValue(final ValueStream state)
+   {
+      state.mmTime += 1000;
+      return state.mmStream.offer(state.mmTime, state.mmTime * 0.001f);
+   }
+
+   @Benchmark
+   @Group("valueStream")
+   @GroupThreads(1)
+   public int drainValues(final ValueStream state)
+   {
+      return state.mmStream.drain(state.mmTimes, state.mmValues, 0, BATCH);
+   }
+
+   @Benchmark
+   @Group("touchBuffer")
+   @GroupThreads(1)
+   public boolean offerTouch(final TouchBuffer state)
+   {
+      state.mmTime += 1000;
+      return state.mmBuffer.offer(TouchRingBuffer.ACTION_MOVE, state.mmTime * 0.001f, state.mmTime);
+   }
+
+   @Benchmark
+   @Group("touchBuffer")
+   @GroupThreads(1)
+   public int drainTouches(final TouchBuffer state)
+   {
+      return state.mmBuffer.drain(state);
+   }
+}
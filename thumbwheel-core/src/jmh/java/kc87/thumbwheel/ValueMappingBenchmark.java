@@ -0,0 +1,83 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ *   Lookup table of every mapping curve against direct evaluation of the
+ *   curve, per mapped value. The inputs are spread over the whole range in
+ *   a scattered order, so neither side profits from a predictable table
+ *   index. The accuracy of the tables is checked by ValueMappingTest.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueMappingBenchmark
+{
+   private static final int SAMPLES = 4096;
+   private static final float MIN = 20.0f;
+   private static final float MAX = 20000.0f;
+
+   // ValueMapping types
+   @Param({"1", "2", "3", "4"})
+   public int curve;
+
+   private final float[] mInputs = new float[SAMPLES];
+   private ValueMapping mMapping;
+
+   @Setup
+   public void setup()
+   {
+      for (int i = 0; i < SAMPLES; i++) {
+         mInputs[i] = MIN + (MAX - MIN) * ((i * 7919) % SAMPLES) / (SAMPLES - 1);
+      }
+
+      final ValueMapping mapping = (curve == ValueMapping.PIECEWISE)
+              ? ValueMapping.piecewise(new float[]{0.0f, 0.5f, 0.8f, 1.0f}, new float[]{0.0f, 0.1f, 0.5f, 1.0f})
+              : ValueMapping.fromType(curve, 0.0f);
+      mMapping = mapping.withRange(MIN, MAX);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public float lookup()
+   {
+      final ValueMapping mapping = mMapping;
+      float sum = 0.0f;
+
+      for (float input : mInputs) {
+         sum += mapping.map(input);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(SAMPLES)
+   public float direct()
+   {
+      final ValueMapping mapping = mMapping;
+      final float scale = 1.0f / (MAX - MIN);
+      float sum = 0.0f;
+
+      for (float input : mInputs) {
+         sum += mapping.evaluate((input - MIN) * scale);
+      }
+      return sum;
+   }
+}
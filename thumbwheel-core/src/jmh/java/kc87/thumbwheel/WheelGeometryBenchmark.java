@@ -0,0 +1,56 @@
+package kc87.thumbwheel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ *   Mesh generation per level of detail: building and deduplicating the
+ *   triangle soup, as done once per level and again for every new context,
+ *   and packing the quantized vertex buffer for the VBO upload.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WheelGeometryBenchmark
+{
+   @Param({"0", "1", "2"})
+   public int lod;
+
+   private WheelGeometry mGeometry;
+
+   @Setup
+   public void setup()
+   {
+      mGeometry = WheelGeometry.get(lod);
+   }
+
+   @Benchmark
+   public short[] generate()
+   {
+      mGeometry.releaseHeapData();
+      mGeometry.getVertexNormals();
+      return mGeometry.getIndices();
+   }
+
+   @Benchmark
+   public ByteBuffer quantize()
+   {
+      return mGeometry.createQuantizedBuffer();
+   }
+}
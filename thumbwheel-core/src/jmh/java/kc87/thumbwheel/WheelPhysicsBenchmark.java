@@ -0,0 +1,90 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ *   Render thread work of one wheel frame without the drawing, in the
+ *   order of WheelState.update(): settings, draining the touch
+ *   samples, the physics step and the value mapping. Frames run through
+ *   endless gestures, a drag of 30 frames with two samples each followed
+ *   by a fling running out, so the mix of dragged and flung frames is fixed.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WheelPhysicsBenchmark implements TouchRingBuffer.Sink
+{
+   private static final long FRAME_NANOS = 1000000000L / 60;
+   private static final int GESTURE_FRAMES = 120;
+   private static final int DRAG_FRAMES = 30;
+   private static final int LENGTH = 800;
+
+   @Param({"0", "1", "2", "3"})
+   public int mapping;
+
+   @Param({"false", "true"})
+   public boolean accelerated;
+
+   private final WheelPhysics mPhysics = new WheelPhysics();
+   private final TouchRingBuffer mTouchBuffer = new TouchRingBuffer(256);
+   private WheelConfig mConfig;
+   private int mFrame = 0;
+   private long mTime = 1000000000L;
+   private float mPosition = LENGTH / 2;
+
+   @Setup
+   public void setup()
+   {
+      mConfig = new WheelConfig(20.0f, 20000.0f, 1.0f, 0, WheelPhysics.BOUNDARY_REPEAT, true, 8, false,
+                                ValueMapping.fromType(mapping, 0.0f), accelerated ? 1.0f : 0.0f,
+                                false, WheelGeometry.SEGMENTS, WheelGeometry.RIDGE_THICKNESS);
+      mPhysics.setValue(mConfig.minValue);
+   }
+
+   @Override
+   public void onTouchSample(int action, float position, long timeNanos)
+   {
+      mPhysics.touch(action, position, timeNanos);
+   }
+
+   @Benchmark
+   public float frame()
+   {
+      final int phase = mFrame++ % GESTURE_FRAMES;
+
+      if (phase == 0) {
+         mTouchBuffer.offer(TouchRingBuffer.ACTION_DOWN, mPosition, mTime - FRAME_NANOS / 2);
+      } else if (phase <= DRAG_FRAMES) {
+         mPosition -= 4.0f + (phase % 7);
+         mTouchBuffer.offer(TouchRingBuffer.ACTION_MOVE, mPosition, mTime - FRAME_NANOS);
+         mPosition -= 4.0f + (phase % 5);
+         mTouchBuffer.offer(TouchRingBuffer.ACTION_MOVE, mPosition, mTime - FRAME_NANOS / 2);
+      } else if (phase == DRAG_FRAMES + 1) {
+         mTouchBuffer.offer(TouchRingBuffer.ACTION_UP, mPosition, mTime - FRAME_NANOS / 2);
+         mPosition = LENGTH / 2;
+      }
+
+      mPhysics.apply(mConfig, LENGTH);
+      mTouchBuffer.drain(this);
+      mPhysics.step(mTime, FRAME_NANOS);
+      mTime += FRAME_NANOS;
+
+      return mConfig.ratio * mConfig.mapping.map(mPhysics.getValue()) + mPhysics.getPredictedRotation();
+   }
+}
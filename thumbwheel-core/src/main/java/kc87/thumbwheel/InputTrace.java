@@ -0,0 +1,546 @@
+package kc87.thumbwheel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/*
+ *   Binary trace of the input of one wheel, as the render thread consumed it:
+ *   every touch sample in drain order, every frame with its time, delta
+ *   and wheel length, every change of the motion settings and every
+ *   programmatic move (setValue(), animateTo(), the start of a replay).
+ *   Replaying the records through WheelPhysics reproduces the value
+ *   sequence of the recording exactly (see InputTraceReplay).
+ *   Plain Java, no Android dependencies.
+ *
+ *   Format, little endian: a header with the motion settings and the value
+ *   at the start, followed by fixed size records
+ *
+ *   touch:  byte kind, byte action, short 0, float position (px), long time (ns)
+ *   frame:  byte kind, byte 0, short length (px), int delta (ns), long time (ns)
+ *   move:   byte kind, byte MOVE_*, short 0, float value (wheel units), long time (ns)
+ *   range:  byte kind, byte mapping type, short point count, float mapping shape, float min, float max
+ *   point:  byte kind, byte 0, short index, float x, float y, int 0
+ *   motion: byte kind, byte boundary mode, short touch prediction (ms), float acceleration,
+ *           float ratio, int velocity estimation
+ *
+ *   Changed settings (range, points of a piecewise curve and motion record)
+ *   come before the frame record of the first frame using them. The points
+ *   of a piecewise curve in the header follow it as the first records.
+ */
+
+public final class InputTrace
+{
+   public static final int KIND_TOUCH = 1;
+   public static final int KIND_FRAME = 2;
+   public static final int KIND_MOVE = 3;
+   public static final int KIND_RANGE = 4;
+   public static final int KIND_MOTION = 5;
+   public static final int KIND_POINT = 6;
+
+   // Move records: a jump cancels the gesture before the frame step, an animation moves after it
+   public static final int MOVE_JUMP = 0;
+   public static final int MOVE_ANIMATION = 1;
+
+   private static final int MAGIC = 0x54485754;
+   // Version 1 has touch and frame records only, version 2 no piecewise curves
+   private static final int VERSION = 3;
+   // Header fields take 56 bytes, the rest is reserved
+   private static final int HEADER_BYTES = 64;
+   private static final int RECORD_BYTES = 16;
+   // Piecewise curves with more points are not recorded
+   static final int MAX_POINTS = 1024;
+
+   private InputTrace()
+   {
+   }
+
+   /*
+    *   Writes a trace file. Records are buffered and written in blocks,
+    *   an I/O error stops the recording and is thrown by close().
+    *   The wheel writes on its render thread, close() may come from any thread.
+    */
+
+   public static final class Writer implements Closeable
+   {
+      private static final int BUFFER_BYTES = 64 * 1024;
+
+      private final FileOutputStream mStream;
+      private final FileChannel mChannel;
+      private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      private boolean mStarted = false;
+      private boolean mClosed = false;
+      // Settings of the last header or range and motion records
+      private WheelConfig mConfig;
+      private IOException mError;
+
+      public Writer(final File file) throws IOException
+      {
+         mStream = new FileOutputStream(file);
+         mChannel = mStream.getChannel();
+      }
+
+      /*
+       *   Called before every frame: the header with the first frame of the
+       *   wheel, range and motion records whenever the motion settings changed
+       */
+
+      synchronized void begin(final WheelConfig config, final float value)
+      {
+         if (mClosed) {
+            return;
+         }
+
+         if (mStarted) {
+            if (config != mConfig) {
+               if (!isSameMotion(config, mConfig) && checkPoints(config) &&
+                   ensureSpace(2 + pointCount(config))) {
+                  putSettings(config);
+               }
+               mConfig = config;
+            }
+            return;
+         }
+
+         mStarted = true;
+         mConfig = config;
+         if (!checkPoints(config)) {
+            return;
+         }
+         mBuffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putFloat(config.minValue)
+                .putFloat(config.maxValue)
+                .putFloat(config.ratio)
+                .putInt(config.orientation)
+                .putInt(config.boundaryMode)
+                .putInt(config.velocityEstimation ? 1 : 0)
+                .putInt(config.touchPrediction)
+                .putFloat(config.acceleration)
+                .putInt(config.mapping.getType())
+                .putFloat(config.mapping.getShape())
+                .putFloat(value)
+                .putInt(pointCount(config));
+         mBuffer.position(HEADER_BYTES);
+         putPoints(config);
+      }
+
+      synchronized void touch(final int action, final float position, final long timeNanos)
+      {
+         if (ensureSpace(1)) {
+            mBuffer.put((byte) KIND_TOUCH).put((byte) action).putShort((short) 0)
+                   .putFloat(position).putLong(timeNanos);
+         }
+      }
+
+      synchronized void frame(final long frameTimeNanos, final long deltaNanos, final int length)
+      {
+         if (ensureSpace(1)) {
+            mBuffer.put((byte) KIND_FRAME).put((byte) 0).putShort((short) Math.min(length, Short.MAX_VALUE))
+                   .putInt((int) Math.min(deltaNanos, Integer.MAX_VALUE)).putLong(frameTimeNanos);
+         }
+      }
+
+      /*
+       *   Programmatic move to value (in wheel units), type is one of MOVE_*
+       */
+
+      synchronized void move(final int type, final float value, final long timeNanos)
+      {
+         if (ensureSpace(1)) {
+            mBuffer.put((byte) KIND_MOVE).put((byte) type).putShort((short) 0)
+                   .putFloat(value).putLong(timeNanos);
+         }
+      }
+
+      @Override
+      public synchronized void close() throws IOException
+      {
+         if (mClosed) {
+            return;
+         }
+
+         mClosed = true;
+         try {
+            flush();
+            mStream.close();
+         } catch (IOException e) {
+            if (mError == null) {
+               mError = e;
+            }
+         }
+
+         if (mError != null) {
+            throw mError;
+         }
+      }
+
+      private void putSettings(final WheelConfig config)
+      {
+         mBuffer.put((byte) KIND_RANGE).put((byte) config.mapping.getType()).putShort((short) pointCount(config))
+                .putFloat(config.mapping.getShape()).putFloat(config.minValue).putFloat(config.maxValue);
+         putPoints(config);
+         mBuffer.put((byte) KIND_MOTION).put((byte) config.boundaryMode)
+                .putShort((short) Math.min(config.touchPrediction, Short.MAX_VALUE))
+                .putFloat(config.acceleration).putFloat(config.ratio).putInt(config.velocityEstimation ? 1 : 0);
+      }
+
+      private void putPoints(final WheelConfig config)
+      {
+         final float[] x = config.mapping.getPointsX();
+         final float[] y = config.mapping.getPointsY();
+
+         for (int i = 0; i < pointCount(config); i++) {
+            mBuffer.put((byte) KIND_POINT).put((byte) 0).putShort((short) i)
+                   .putFloat(x[i]).putFloat(y[i]).putInt(0);
+         }
+      }
+
+      private static int pointCount(final WheelConfig config)
+      {
+         final float[] x = config.mapping.getPointsX();
+         return (x != null) ? x.length : 0;
+      }
+
+      /*
+       *   A curve too long to be recorded stops the recording, close() throws
+       */
+
+      private boolean checkPoints(final WheelConfig config)
+      {
+         if (pointCount(config) > MAX_POINTS) {
+            mError = new IOException("Piecewise mapping with more than " + MAX_POINTS + " points, not recorded");
+            return false;
+         }
+         return true;
+      }
+
+      private static boolean isSameMotion(final WheelConfig a, final WheelConfig b)
+      {
+         return a.minValue == b.minValue && a.maxValue == b.maxValue && a.ratio == b.ratio &&
+                a.boundaryMode == b.boundaryMode && a.velocityEstimation == b.velocityEstimation &&
+                a.touchPrediction == b.touchPrediction && a.acceleration == b.acceleration &&
+                a.mapping == b.mapping;
+      }
+
+      private boolean ensureSpace(final int records)
+      {
+         if (!mStarted || mClosed || mError != null) {
+            return false;
+         }
+
+         if (mBuffer.remaining() < records * RECORD_BYTES) {
+            try {
+               flush();
+            } catch (IOException e) {
+               mError = e;
+               return false;
+            }
+         }
+         return true;
+      }
+
+      private void flush() throws IOException
+      {
+         mBuffer.flip();
+         while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+         }
+         mBuffer.clear();
+      }
+   }
+
+   /*
+    *   Reads a trace file through memory mapped windows, so traces of any
+    *   length are read without copying them into the heap. Not thread safe.
+    *   The settings records update the current settings (getCurrentConfig()),
+    *   reading them allocates nothing.
+    */
+
+   public static final class Reader implements Closeable
+   {
+      private static final int WINDOW_RECORDS = 1024 * 1024;
+
+      private final RandomAccessFile mFile;
+      private final FileChannel mChannel;
+      private final long mRecordCount;
+      private final WheelConfig mConfig;
+      private final float mStartValue;
+
+      private MappedByteBuffer mWindow;
+      private long mWindowFirst = 0;
+      private int mWindowRecords = 0;
+      private long mIndex = 0;
+
+      private int mKind;
+      private int mAction;
+      private int mLength;
+      private float mPosition;
+      private long mDeltaNanos;
+      private long mTimeNanos;
+
+      // Settings as of the current record
+      private float mMin;
+      private float mMax;
+      private float mRatio;
+      private int mBoundaryMode;
+      private boolean mVelocityEstimation;
+      private int mTouchPrediction;
+      private float mAcceleration;
+      private int mMappingType;
+      private float mMappingShape;
+      private int mPointCount;
+      private float[] mPointsX = new float[0];
+      private float[] mPointsY = new float[0];
+
+      public Reader(final File file) throws IOException
+      {
+         mFile = new RandomAccessFile(file, "r");
+         mChannel = mFile.getChannel();
+
+         final long size = mChannel.size();
+         if (size == 0) {
+            close();
+            throw new IOException("Empty wheel input trace, closed before the first frame: " + file);
+         }
+         if (size < HEADER_BYTES) {
+            close();
+            throw new IOException("Not a wheel input trace: " + file);
+         }
+
+         final ByteBuffer header = mChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                                           .order(ByteOrder.LITTLE_ENDIAN);
+         final int magic = header.getInt();
+         final int version = header.getInt();
+         if (magic != MAGIC || version < 1 || version > VERSION) {
+            close();
+            throw new IOException("Not a wheel input trace: " + file);
+         }
+
+         final float min = header.getFloat();
+         final float max = header.getFloat();
+         final float ratio = header.getFloat();
+         final int orientation = header.getInt();
+         final int boundaryMode = header.getInt();
+         final boolean velocityEstimation = header.getInt() != 0;
+         final int touchPrediction = header.getInt();
+         final float acceleration = header.getFloat();
+         final int mappingType = header.getInt();
+         final float mappingShape = header.getFloat();
+         mStartValue = header.getFloat();
+         final int pointCount = (version >= 3) ? header.getInt() : 0;
+         mRecordCount = (size - HEADER_BYTES) / RECORD_BYTES;
+
+         if (mappingType == ValueMapping.PIECEWISE && (pointCount < 2 || pointCount > mRecordCount)) {
+            close();
+            throw new IOException("Wheel input trace with a piecewise mapping but without its points: " + file);
+         }
+
+         // The points of the curve are the first records
+         if (pointCount > 0) {
+            final ByteBuffer points = mChannel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                                                   (long) pointCount * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            reservePoints(pointCount);
+            for (int i = 0; i < pointCount; i++) {
+               mPointsX[i] = points.getFloat(i * RECORD_BYTES + 4);
+               mPointsY[i] = points.getFloat(i * RECORD_BYTES + 8);
+            }
+            mPointCount = pointCount;
+         }
+
+         mConfig = new WheelConfig(min, max, ratio, orientation, boundaryMode, velocityEstimation,
+                                   touchPrediction, false, createMapping(mappingType, mappingShape),
+                                   acceleration, false, WheelGeometry.SEGMENTS, WheelGeometry.RIDGE_THICKNESS);
+         rewind();
+      }
+
+      /*
+       *   Motion settings and wheel value (in wheel units) at the start of the recording
+       */
+
+      public WheelConfig getConfig()
+      {
+         return mConfig;
+      }
+
+      /*
+       *   Motion settings in effect at the current record, a new snapshot per call
+       */
+
+      public WheelConfig getCurrentConfig() throws IOException
+      {
+         if (mMappingType == ValueMapping.PIECEWISE && mPointCount < 2) {
+            throw new IOException("Piecewise mapping in the wheel input trace without its points");
+         }
+         return new WheelConfig(mMin, mMax, mRatio, mConfig.orientation, mBoundaryMode, mVelocityEstimation,
+                                mTouchPrediction, false, createMapping(mMappingType, mMappingShape),
+                                mAcceleration, false, WheelGeometry.SEGMENTS, WheelGeometry.RIDGE_THICKNESS);
+      }
+
+      private ValueMapping createMapping(final int type, final float shape)
+      {
+         if (type == ValueMapping.PIECEWISE) {
+            return ValueMapping.piecewise(Arrays.copyOf(mPointsX, mPointCount), Arrays.copyOf(mPointsY, mPointCount));
+         }
+         return ValueMapping.fromType(type, shape);
+      }
+
+      /*
+       *   Grows only, a trace replayed again reads its curves without allocating
+       */
+
+      private void reservePoints(final int count)
+      {
+         if (mPointsX.length < count) {
+            mPointsX = Arrays.copyOf(mPointsX, count);
+            mPointsY = Arrays.copyOf(mPointsY, count);
+         }
+      }
+
+      public float getStartValue()
+      {
+         return mStartValue;
+      }
+
+      public long getRecordCount()
+      {
+         return mRecordCount;
+      }
+
+      /*
+       *   Advance to the next record, false at the end of the trace
+       */
+
+      public boolean next() throws IOException
+      {
+         if (mIndex >= mRecordCount) {
+            return false;
+         }
+
+         if (mIndex < mWindowFirst || mIndex >= mWindowFirst + mWindowRecords) {
+            mWindowFirst = mIndex;
+            mWindowRecords = (int) Math.min(WINDOW_RECORDS, mRecordCount - mIndex);
+            mWindow = mChannel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + mWindowFirst * RECORD_BYTES,
+                                   (long) mWindowRecords * RECORD_BYTES);
+            mWindow.order(ByteOrder.LITTLE_ENDIAN);
+         }
+
+         final int offset = (int) (mIndex - mWindowFirst) * RECORD_BYTES;
+         mKind = mWindow.get(offset);
+         mAction = mWindow.get(offset + 1);
+         mLength = mWindow.getShort(offset + 2);
+         mDeltaNanos = 0;
+         mPosition = 0.0f;
+
+         if (mKind == KIND_RANGE) {
+            mMappingType = mAction;
+            mPointCount = Math.max(mLength, 0);
+            reservePoints(mPointCount);
+            mMappingShape = mWindow.getFloat(offset + 4);
+            mMin = mWindow.getFloat(offset + 8);
+            mMax = mWindow.getFloat(offset + 12);
+         } else if (mKind == KIND_MOTION) {
+            mBoundaryMode = mAction;
+            mTouchPrediction = mLength;
+            mAcceleration = mWindow.getFloat(offset + 4);
+            mRatio = mWindow.getFloat(offset + 8);
+            mVelocityEstimation = mWindow.getInt(offset + 12) != 0;
+         } else if (mKind == KIND_POINT) {
+            if (mLength >= 0 && mLength < mPointsX.length) {
+               mPointsX[mLength] = mWindow.getFloat(offset + 4);
+               mPointsY[mLength] = mWindow.getFloat(offset + 8);
+            }
+         } else if (mKind == KIND_FRAME) {
+            mDeltaNanos = mWindow.getInt(offset + 4);
+         } else {
+            mPosition = mWindow.getFloat(offset + 4);
+         }
+
+         // Settings records carry no time, they take the one of the record before
+         if (mKind != KIND_RANGE && mKind != KIND_POINT && mKind != KIND_MOTION) {
+            mTimeNanos = mWindow.getLong(offset + 8);
+         }
+         mIndex++;
+         return true;
+      }
+
+      /*
+       *   Back to the first record and the settings of the header
+       */
+
+      public void rewind()
+      {
+         mIndex = 0;
+         mMin = mConfig.minValue;
+         mMax = mConfig.maxValue;
+         mRatio = mConfig.ratio;
+         mBoundaryMode = mConfig.boundaryMode;
+         mVelocityEstimation = mConfig.velocityEstimation;
+         mTouchPrediction = mConfig.touchPrediction;
+         mAcceleration = mConfig.acceleration;
+         mMappingType = mConfig.mapping.getType();
+         mMappingShape = mConfig.mapping.getShape();
+
+         final float[] x = mConfig.mapping.getPointsX();
+         final float[] y = mConfig.mapping.getPointsY();
+         mPointCount = (x != null) ? x.length : 0;
+         for (int i = 0; i < mPointCount; i++) {
+            mPointsX[i] = x[i];
+            mPointsY[i] = y[i];
+         }
+      }
+
+      public int getKind()
+      {
+         return mKind;
+      }
+
+      /*
+       *   Touch records: TouchRingBuffer action and position along the drag axis in pixels.
+       *   Move records: one of MOVE_* and the value in wheel units.
+       */
+
+      public int getAction()
+      {
+         return mAction;
+      }
+
+      public float getPosition()
+      {
+         return mPosition;
+      }
+
+      /*
+       *   Frame records: time since the previous frame and wheel length in pixels
+       */
+
+      public long getDeltaNanos()
+      {
+         return mDeltaNanos;
+      }
+
+      public int getLength()
+      {
+         return mLength;
+      }
+
+      public long getTimeNanos()
+      {
+         return mTimeNanos;
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         mWindow = null;
+         mFile.close();
+      }
+   }
+}
@@ -0,0 +1,186 @@
+package kc87.thumbwheel;
+
+import java.io.IOException;
+
+/*
+ *   Headless replay of an InputTrace: the recorded touch samples and frames
+ *   are fed through WheelPhysics in their original order and with their
+ *   original time stamps, no view, thread or GL involved. The same trace
+ *   always gives the same value sequence, so two builds can be compared
+ *   frame by frame or by Result.valueHash alone. Settings changed and
+ *   programmatic moves (setValue(), animateTo()) during the recording are
+ *   replayed at the frame they happened in. Plain Java.
+ *
+ *   To replay into a live wheel instead, see ThumbWheel.replayInputTrace().
+ */
+
+public final class InputTraceReplay
+{
+   /*
+    *   Called for every replayed frame: its recorded time, the reported value
+    *   (mapped and scaled by the ratio) and the time spent computing it.
+    */
+
+   public static interface FrameListener
+   {
+      public void onFrame(long frameTimeNanos, float value, long computeNanos);
+   }
+
+   public static final class Result
+   {
+      public final long frames;
+      public final long touchSamples;
+      public final float finalValue;
+      // Time spent in physics and mapping, summed and per worst frame
+      public final long computeNanos;
+      public final long maxComputeNanos;
+      // Hash over the bits of all reported values, equal for equal value sequences
+      public final long valueHash;
+
+      private Result(final long frames, final long touchSamples, final float finalValue,
+                     final long computeNanos, final long maxComputeNanos, final long valueHash)
+      {
+         this.frames = frames;
+         this.touchSamples = touchSamples;
+         this.finalValue = finalValue;
+         this.computeNanos = computeNanos;
+         this.maxComputeNanos = maxComputeNanos;
+         this.valueHash = valueHash;
+      }
+   }
+
+   private InputTraceReplay()
+   {
+   }
+
+   /*
+    *   Replay the whole trace from its first record with the recorded
+    *   settings, listener may be null
+    */
+
+   public static Result run(final InputTrace.Reader reader, final FrameListener listener) throws IOException
+   {
+      return run(reader, reader.getConfig(), true, listener);
+   }
+
+   /*
+    *   Replay with other settings, e.g. to see how a change of the
+    *   acceleration or mapping would have behaved on the same input.
+    *   Settings changed during the recording are ignored.
+    */
+
+   public static Result run(final InputTrace.Reader reader, final WheelConfig config,
+                            final FrameListener listener) throws IOException
+   {
+      return run(reader, config, false, listener);
+   }
+
+   private static Result run(final InputTrace.Reader reader, final WheelConfig startConfig,
+                             final boolean recordedSettings, final FrameListener listener) throws IOException
+   {
+      final WheelPhysics physics = new WheelPhysics();
+      final FrameStats stats = new FrameStats(startConfig.ratio * startConfig.mapping.map(reader.getStartValue()));
+      WheelConfig config = startConfig;
+      long touchSamples = 0;
+      boolean pending = false;
+      boolean stepped = false;
+      boolean settingsChanged = false;
+      long frameTime = 0;
+      long delta = 0;
+
+      physics.apply(config, 1.0f);
+      physics.setValue(reader.getStartValue());
+      reader.rewind();
+
+      /*
+       *   Settings records come before the frame record of their frame, touch
+       *   samples drained in a frame and jumps after it. The frame is stepped
+       *   once they are applied, animations move the wheel after the step.
+       */
+      while (reader.next()) {
+         switch (reader.getKind()) {
+            case InputTrace.KIND_TOUCH:
+               physics.touch(reader.getAction(), reader.getPosition(), reader.getTimeNanos());
+               touchSamples++;
+               break;
+            case InputTrace.KIND_MOVE:
+               if (reader.getAction() == InputTrace.MOVE_ANIMATION) {
+                  if (pending && !stepped) {
+                     physics.step(frameTime, delta);
+                     stepped = true;
+                  }
+               } else {
+                  physics.cancel();
+               }
+               physics.moveTo(reader.getPosition());
+               break;
+            case InputTrace.KIND_RANGE:
+            case InputTrace.KIND_POINT:
+            case InputTrace.KIND_MOTION:
+               settingsChanged = recordedSettings;
+               break;
+            case InputTrace.KIND_FRAME:
+               if (pending) {
+                  stats.step(physics, config, frameTime, delta, stepped, listener);
+               }
+               if (settingsChanged) {
+                  config = reader.getCurrentConfig();
+                  settingsChanged = false;
+               }
+               physics.apply(config, reader.getLength());
+               frameTime = reader.getTimeNanos();
+               delta = reader.getDeltaNanos();
+               pending = true;
+               stepped = false;
+               break;
+            default:
+               throw new IOException("Unknown record in the wheel input trace: " + reader.getKind());
+         }
+      }
+
+      if (pending) {
+         stats.step(physics, config, frameTime, delta, stepped, listener);
+      }
+
+      return new Result(stats.mmFrames, touchSamples, stats.mmValue,
+                        stats.mmComputeNanos, stats.mmMaxComputeNanos, stats.mmHash);
+   }
+
+   private static final class FrameStats
+   {
+      private long mmFrames = 0;
+      private long mmComputeNanos = 0;
+      private long mmMaxComputeNanos = 0;
+      private long mmHash = 17;
+      private float mmValue;
+
+      FrameStats(final float startValue)
+      {
+         mmValue = startValue;
+      }
+
+      /*
+       *   Finish a frame, stepped if an animation moved the wheel after the step already
+       */
+
+      void step(final WheelPhysics physics, final WheelConfig config, final long frameTimeNanos,
+                final long deltaNanos, final boolean stepped, final FrameListener listener)
+      {
+         final long start = System.nanoTime();
+         if (!stepped) {
+            physics.step(frameTimeNanos, deltaNanos);
+         }
+         mmValue = config.ratio * config.mapping.map(physics.getValue());
+         final long elapsed = System.nanoTime() - start;
+
+         mmComputeNanos += elapsed;
+         mmMaxComputeNanos = Math.max(mmMaxComputeNanos, elapsed);
+         mmHash = 31 * mmHash + Float.floatToIntBits(mmValue);
+         mmFrames++;
+
+         if (listener != null) {
+            listener.onFrame(frameTimeNanos, mmValue, elapsed);
+         }
+      }
+   }
+}
@@ -0,0 +1,102 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ *   Lock free single producer / single consumer queue of touch samples.
+ *   The UI thread offers samples from onTouchEvent(), the render thread
+ *   drains them once per frame. Samples are kept in primitive arrays,
+ *   neither side allocates.
+ */
+
+public final class TouchRingBuffer
+{
+   public static final int ACTION_DOWN = 0;
+   public static final int ACTION_MOVE = 1;
+   public static final int ACTION_UP = 2;
+   public static final int ACTION_CANCEL = 3;
+
+   public static interface Sink
+   {
+      public void onTouchSample(int action, float position, long timeNanos);
+   }
+
+   private final int mMask;
+   private final int[] mActions;
+   private final float[] mPositions;
+   private final long[] mTimes;
+
+   // Monotonic sequence numbers, published with lazySet (store/store barrier)
+   private final AtomicLong mHead = new AtomicLong();
+   private final AtomicLong mTail = new AtomicLong();
+   private long mDropped = 0;
+
+   /*
+    *   Capacity is rounded up to the next power of two
+    */
+
+   public TouchRingBuffer(final int capacity)
+   {
+      final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+      mMask = size - 1;
+      mActions = new int[size];
+      mPositions = new float[size];
+      mTimes = new long[size];
+   }
+
+   /*
+    *   Producer side. Returns false and counts the sample as dropped
+    *   if the consumer fell behind by a full buffer.
+    */
+
+   public boolean offer(final int action, final float position, final long timeNanos)
+   {
+      final long head = mHead.get();
+
+      if (head - mTail.get() > mMask) {
+         mDropped++;
+         return false;
+      }
+
+      final int index = (int) head & mMask;
+      mActions[index] = action;
+      mPositions[index] = position;
+      mTimes[index] = timeNanos;
+      mHead.lazySet(head + 1);
+      return true;
+   }
+
+   /*
+    *   Consumer side. Hands all pending samples to the sink
+    *   in order and returns their number.
+    */
+
+   public int drain(final Sink sink)
+   {
+      final long head = mHead.get();
+      long tail = mTail.get();
+      int count = 0;
+
+      while (tail < head) {
+         final int index = (int) tail & mMask;
+         sink.onTouchSample(mActions[index], mPositions[index], mTimes[index]);
+         mTail.lazySet(++tail);
+         count++;
+      }
+      return count;
+   }
+
+   public boolean isEmpty()
+   {
+      return mHead.get() == mTail.get();
+   }
+
+   /*
+    *   Number of samples rejected so far, producer thread only
+    */
+
+   public long getDroppedCount()
+   {
+      return mDropped;
+   }
+}
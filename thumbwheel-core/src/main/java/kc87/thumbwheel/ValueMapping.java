@@ -0,0 +1,268 @@
+package kc87.thumbwheel;
+
+import java.lang.Math;
+
+/*
+ *   Nonlinear mapping from the linear wheel position to the reported value,
+ *   e.g. logarithmic for frequencies, exponential for gain or an S-curve
+ *   for fine control around the center. Both ends of the range map to
+ *   themselves, the curve only shapes the way in between.
+ *
+ *   The curve is sampled once into a lookup table for the current range,
+ *   map() only interpolates, no pow/exp/log per frame. Immutable, a range
+ *   change creates a new instance (see WheelConfig).
+ */
+
+public final class ValueMapping
+{
+   public static final int LINEAR = 0;
+   public static final int LOGARITHMIC = 1;
+   public static final int EXPONENTIAL = 2;
+   public static final int S_CURVE = 3;
+   public static final int PIECEWISE = 4;
+
+   static final int TABLE_SIZE = 256;
+
+   private static final float DEFAULT_EXPONENTIAL_SHAPE = 3.0f;
+   private static final float DEFAULT_S_CURVE_SHAPE = 8.0f;
+   // Used instead of a true logarithmic curve if the range includes zero
+   private static final float LOG_FALLBACK_SHAPE = 6.9f;
+
+   private static final ValueMapping sLinear = new ValueMapping(LINEAR, 0.0f, null, null, 0.0f, 1.0f);
+
+   private final int mType;
+   private final float mShape;
+   private final float[] mPointsX;
+   private final float[] mPointsY;
+   private final float mMin;
+   private final float mMax;
+   private final float[] mTable;
+
+   private ValueMapping(final int type, final float shape, final float[] pointsX, final float[] pointsY,
+                        final float min, final float max)
+   {
+      mType = type;
+      mShape = shape;
+      mPointsX = pointsX;
+      mPointsY = pointsY;
+      mMin = min;
+      mMax = max;
+
+      if (type == LINEAR) {
+         mTable = null;
+      } else {
+         mTable = new float[TABLE_SIZE + 1];
+         for (int i = 0; i <= TABLE_SIZE; i++) {
+            mTable[i] = evaluate((float) i / TABLE_SIZE);
+         }
+      }
+   }
+
+   public static ValueMapping linear()
+   {
+      return sLinear;
+   }
+
+   /*
+    *   Equal wheel movement changes the value by an equal factor,
+    *   needs a range not including zero.
+    */
+
+   public static ValueMapping logarithmic()
+   {
+      return new ValueMapping(LOGARITHMIC, 0.0f, null, null, 0.0f, 1.0f);
+   }
+
+   /*
+    *   Slow start and fast end for shape > 0, the other way round for shape < 0
+    */
+
+   public static ValueMapping exponential(final float shape)
+   {
+      return new ValueMapping(EXPONENTIAL, shape != 0.0f ? shape : DEFAULT_EXPONENTIAL_SHAPE, null, null, 0.0f, 1.0f);
+   }
+
+   /*
+    *   Fine control in the middle of the range, steeper with larger shape
+    */
+
+   public static ValueMapping sCurve(final float shape)
+   {
+      return new ValueMapping(S_CURVE, shape > 0.0f ? shape : DEFAULT_S_CURVE_SHAPE, null, null, 0.0f, 1.0f);
+   }
+
+   /*
+    *   Linear segments through the given points of the normalized curve,
+    *   x ascending from 0 to 1, y from 0 to 1 and not decreasing.
+    */
+
+   public static ValueMapping piecewise(final float[] x, final float[] y)
+   {
+      if (x.length != y.length || x.length < 2) {
+         throw new IllegalArgumentException("Piecewise mapping needs at least two points");
+      }
+      return new ValueMapping(PIECEWISE, 0.0f, x.clone(), y.clone(), 0.0f, 1.0f);
+   }
+
+   /*
+    *   Curve type by its XML enum value, shape 0 selects the default
+    */
+
+   static ValueMapping fromType(final int type, final float shape)
+   {
+      switch (type) {
+         case LOGARITHMIC:
+            return logarithmic();
+         case EXPONENTIAL:
+            return exponential(shape);
+         case S_CURVE:
+            return sCurve(shape);
+         default:
+            return linear();
+      }
+   }
+
+   public int getType()
+   {
+      return mType;
+   }
+
+   float getShape()
+   {
+      return mShape;
+   }
+
+   /*
+    *   Points of a piecewise curve, null for the other types. Not to be modified.
+    */
+
+   float[] getPointsX()
+   {
+      return mPointsX;
+   }
+
+   float[] getPointsY()
+   {
+      return mPointsY;
+   }
+
+   /*
+    *   Same curve, sampled for another range
+    */
+
+   ValueMapping withRange(final float min, final float max)
+   {
+      if (mType == LINEAR || (min == mMin && max == mMax)) {
+         return this;
+      }
+      return new ValueMapping(mType, mShape, mPointsX, mPointsY, min, max);
+   }
+
+   /*
+    *   Linear wheel value in [min, max] to the mapped value
+    */
+
+   float map(final float value)
+   {
+      if (mTable == null || mMax == mMin) {
+         return value;
+      }
+
+      float position = (value - mMin) / (mMax - mMin) * TABLE_SIZE;
+      if (position <= 0.0f) {
+         return mTable[0];
+      }
+      if (position >= TABLE_SIZE) {
+         return mTable[TABLE_SIZE];
+      }
+
+      final int i = (int) position;
+      final float fraction = position - i;
+      return mTable[i] + fraction * (mTable[i + 1] - mTable[i]);
+   }
+
+   /*
+    *   Mapped value back to the linear wheel value, the curves are monotonic
+    */
+
+   float unmap(final float value)
+   {
+      if (mTable == null || mMax == mMin) {
+         return value;
+      }
+
+      final boolean ascending = mTable[TABLE_SIZE] >= mTable[0];
+      int low = 0;
+      int high = TABLE_SIZE;
+
+      while (high - low > 1) {
+         final int mid = (low + high) >>> 1;
+         if ((mTable[mid] <= value) == ascending) {
+            low = mid;
+         } else {
+            high = mid;
+         }
+      }
+
+      final float span = mTable[high] - mTable[low];
+      float fraction = (span != 0.0f) ? (value - mTable[low]) / span : 0.0f;
+      fraction = Math.max(0.0f, Math.min(1.0f, fraction));
+      return mMin + (mMax - mMin) * (low + fraction) / TABLE_SIZE;
+   }
+
+   /*
+    *   Direct evaluation at the normalized position u in [0, 1],
+    *   only used to fill the table (and by the benchmark).
+    */
+
+   float evaluate(final float u)
+   {
+      final float range = mMax - mMin;
+
+      switch (mType) {
+         case LOGARITHMIC:
+            if (mMin * mMax > 0.0f) {
+               return mMin * (float) Math.pow(mMax / mMin, u);
+            }
+            return mMin + range * exponentialCurve(u, LOG_FALLBACK_SHAPE);
+         case EXPONENTIAL:
+            return mMin + range * exponentialCurve(u, mShape);
+         case S_CURVE: {
+            final double low = logistic(-0.5 * mShape);
+            final double high = logistic(0.5 * mShape);
+            return mMin + range * (float) ((logistic(mShape * (u - 0.5)) - low) / (high - low));
+         }
+         case PIECEWISE:
+            return mMin + range * piecewiseCurve(u);
+         default:
+            return mMin + range * u;
+      }
+   }
+
+   private static float exponentialCurve(final float u, final float shape)
+   {
+      return (float) (Math.expm1(shape * u) / Math.expm1(shape));
+   }
+
+   private static double logistic(final double x)
+   {
+      return 1.0 / (1.0 + Math.exp(-x));
+   }
+
+   private float piecewiseCurve(final float u)
+   {
+      final int last = mPointsX.length - 1;
+
+      if (u <= mPointsX[0]) {
+         return mPointsY[0];
+      }
+      for (int i = 1; i <= last; i++) {
+         if (u <= mPointsX[i]) {
+            final float width = mPointsX[i] - mPointsX[i - 1];
+            final float fraction = (width > 0.0f) ? (u - mPointsX[i - 1]) / width : 1.0f;
+            return mPointsY[i - 1] + fraction * (mPointsY[i] - mPointsY[i - 1]);
+         }
+      }
+      return mPointsY[last];
+   }
+}
@@ -0,0 +1,142 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ *   Lock free bounded queue of time stamped wheel values for consumers
+ *   that need every change (audio or control engines), not just the
+ *   throttled listener calls. The render thread is the only producer and
+ *   never blocks, one background thread drains the samples in batches.
+ *
+ *   When the consumer falls behind, either the new samples are dropped
+ *   (DROP_NEWEST) or the oldest pending ones are overwritten (DROP_OLDEST).
+ *   To drop the oldest the producer moves the tail with a CAS, the consumer
+ *   commits its reads with a CAS as well and retries if they were overwritten.
+ */
+
+public final class ValueSampleStream
+{
+   public static final int DROP_NEWEST = 0;
+   public static final int DROP_OLDEST = 1;
+
+   private final int mMask;
+   private final long[] mTimes;
+   private final float[] mValues;
+
+   // Monotonic sequence numbers
+   private final AtomicLong mHead = new AtomicLong();
+   private final AtomicLong mTail = new AtomicLong();
+   private volatile int mOverflowPolicy;
+   private volatile long mDropped = 0;
+   private volatile long mWritten = 0;
+
+   /*
+    *   Capacity is rounded up to the next power of two
+    */
+
+   public ValueSampleStream(final int capacity, final int overflowPolicy)
+   {
+      final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+      mMask = size - 1;
+      mTimes = new long[size];
+      mValues = new float[size];
+      setOverflowPolicy(overflowPolicy);
+   }
+
+   public void setOverflowPolicy(final int policy)
+   {
+      mOverflowPolicy = (policy == DROP_OLDEST) ? DROP_OLDEST : DROP_NEWEST;
+   }
+
+   public int getOverflowPolicy()
+   {
+      return mOverflowPolicy;
+   }
+
+   public int getCapacity()
+   {
+      return mMask + 1;
+   }
+
+   /*
+    *   Producer side, render thread only.
+    *   Returns false if the sample itself had to be dropped.
+    */
+
+   boolean offer(final long timeNanos, final float value)
+   {
+      final long head = mHead.get();
+      long tail = mTail.get();
+
+      while (head - tail > mMask) {
+         if (mOverflowPolicy == DROP_NEWEST) {
+            mDropped++;
+            return false;
+         }
+         // Give up the oldest sample, unless the consumer just took it
+         if (mTail.compareAndSet(tail, tail + 1)) {
+            mDropped++;
+            break;
+         }
+         tail = mTail.get();
+      }
+
+      final int index = (int) head & mMask;
+      mTimes[index] = timeNanos;
+      mValues[index] = value;
+      mWritten++;
+      mHead.lazySet(head + 1);
+      return true;
+   }
+
+   /*
+    *   Consumer side. Copies up to max pending samples in order into the
+    *   arrays, starting at offset, and returns their number.
+    */
+
+   public int drain(final long[] times, final float[] values, final int offset, final int max)
+   {
+      while (true) {
+         final long tail = mTail.get();
+         final int count = (int) Math.min(mHead.get() - tail, max);
+
+         if (count <= 0) {
+            return 0;
+         }
+
+         for (int i = 0; i < count; i++) {
+            final int index = (int) (tail + i) & mMask;
+            times[offset + i] = mTimes[index];
+            values[offset + i] = mValues[index];
+         }
+
+         // Fails if the producer dropped some of them meanwhile, the copies may be torn
+         if (mTail.compareAndSet(tail, tail + count)) {
+            return count;
+         }
+      }
+   }
+
+   public int size()
+   {
+      return (int) Math.max(mHead.get() - mTail.get(), 0);
+   }
+
+   /*
+    *   Samples lost to overflow so far
+    */
+
+   public long getDroppedCount()
+   {
+      return mDropped;
+   }
+
+   /*
+    *   Samples accepted by the producer so far
+    */
+
+   public long getWrittenCount()
+   {
+      return mWritten;
+   }
+}
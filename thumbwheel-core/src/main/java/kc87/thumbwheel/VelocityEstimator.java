@@ -0,0 +1,123 @@
+package kc87.thumbwheel;
+
+/*
+ *   Least squares velocity estimation over the most recent touch samples,
+ *   similar to the platform VelocityTracker but for a single axis, with
+ *   explicit time stamps and without any allocation.
+ *
+ *   A polynomial (linear or quadratic) is fitted to the samples inside
+ *   the time horizon, the velocity is its slope at the newest sample.
+ *   Positions are in pixels, times in nanoseconds, velocities in pixels per second.
+ */
+
+public final class VelocityEstimator
+{
+   public static final int DEGREE_LINEAR = 1;
+   public static final int DEGREE_QUADRATIC = 2;
+
+   private static final int HISTORY_SIZE = 20;
+   private static final long DEFAULT_HORIZON_NANOS = 100000000L;
+   // A pause this long means the finger stopped, older samples are meaningless
+   private static final long MAX_SAMPLE_GAP_NANOS = 40000000L;
+   private static final double NANOS_PER_SECOND = 1000000000.0;
+
+   private final float[] mPositions = new float[HISTORY_SIZE];
+   private final long[] mTimes = new long[HISTORY_SIZE];
+   private int mNewest = -1;
+   private int mCount = 0;
+   private int mDegree = DEGREE_QUADRATIC;
+   private long mHorizonNanos = DEFAULT_HORIZON_NANOS;
+
+   public void setDegree(final int degree)
+   {
+      mDegree = (degree == DEGREE_LINEAR) ? DEGREE_LINEAR : DEGREE_QUADRATIC;
+   }
+
+   public void setHorizon(final long horizonNanos)
+   {
+      mHorizonNanos = horizonNanos > 0 ? horizonNanos : DEFAULT_HORIZON_NANOS;
+   }
+
+   public void clear()
+   {
+      mNewest = -1;
+      mCount = 0;
+   }
+
+   public void addSample(final float position, final long timeNanos)
+   {
+      if (mCount > 0 && timeNanos - mTimes[mNewest] > MAX_SAMPLE_GAP_NANOS) {
+         clear();
+      }
+
+      mNewest = (mNewest + 1) % HISTORY_SIZE;
+      mPositions[mNewest] = position;
+      mTimes[mNewest] = timeNanos;
+      mCount = Math.min(mCount + 1, HISTORY_SIZE);
+   }
+
+   /*
+    *   Velocity at the newest sample as seen at time nowNanos,
+    *   0 if the finger has been resting for too long or there is too little data.
+    */
+
+   public float getVelocity(final long nowNanos)
+   {
+      if (mCount < 2 || nowNanos - mTimes[mNewest] > MAX_SAMPLE_GAP_NANOS) {
+         return 0.0f;
+      }
+
+      final long newestTime = mTimes[mNewest];
+      final float newestPosition = mPositions[mNewest];
+
+      // Moments of the samples, relative to the newest one for better conditioning
+      double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+      double y0 = 0, y1 = 0, y2 = 0;
+      int n = 0;
+
+      for (int i = 0, index = mNewest; i < mCount; i++) {
+         final long age = newestTime - mTimes[index];
+         if (age > mHorizonNanos) {
+            break;
+         }
+
+         final double x = -age / NANOS_PER_SECOND;
+         final double y = mPositions[index] - newestPosition;
+         final double x2 = x * x;
+
+         s0 += 1.0;
+         s1 += x;
+         s2 += x2;
+         s3 += x2 * x;
+         s4 += x2 * x2;
+         y0 += y;
+         y1 += y * x;
+         y2 += y * x2;
+         n++;
+
+         index = (index == 0) ? HISTORY_SIZE - 1 : index - 1;
+      }
+
+      if (n < 2) {
+         return 0.0f;
+      }
+
+      if (mDegree == DEGREE_QUADRATIC && n >= 3) {
+         /*
+          *   Solve the 3x3 normal equations for y = a + b*x + c*x^2
+          *   with Cramer's rule, b is the slope at x = 0.
+          */
+         final double det = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+         if (Math.abs(det) > 1e-18) {
+            final double detB = s0 * (y1 * s4 - s3 * y2) - y0 * (s1 * s4 - s3 * s2) + s2 * (s1 * y2 - y1 * s2);
+            return (float) (detB / det);
+         }
+      }
+
+      final double det = s0 * s2 - s1 * s1;
+      if (Math.abs(det) < 1e-18) {
+         return 0.0f;
+      }
+      return (float) ((s0 * y1 - s1 * y0) / det);
+   }
+}
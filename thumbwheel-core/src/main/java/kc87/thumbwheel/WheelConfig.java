@@ -0,0 +1,213 @@
+package kc87.thumbwheel;
+
+/*
+ *   Immutable snapshot of the settings of one wheel.
+ *   The UI thread publishes a new snapshot with a single atomic swap, the
+ *   render thread reads one snapshot per frame, so it never sees half of
+ *   an update (e.g. the new minimum with the old maximum).
+ *
+ *   Changes are collected in an Editor and applied on top of the current
+ *   snapshot in one transaction, see ThumbWheel.apply().
+ */
+
+public final class WheelConfig
+{
+   static final float MIN_RIDGE_THICKNESS = 0.05f;
+   static final float MAX_RIDGE_THICKNESS = 0.8f;
+
+   // Range in wheel units, reported values are scaled by ratio
+   public final float minValue;
+   public final float maxValue;
+   public final float ratio;
+   public final int orientation;
+   public final int boundaryMode;
+   public final boolean velocityEstimation;
+   public final int touchPrediction;
+   public final boolean cachedRendering;
+   // Sampled for the range above
+   public final ValueMapping mapping;
+   public final float acceleration;
+   // Look of the procedural renderer, ridges per turn and their share of a ridge period
+   public final boolean proceduralRendering;
+   public final int ridgeCount;
+   public final float ridgeThickness;
+
+   WheelConfig(final float minValue, final float maxValue, final float ratio, final int orientation,
+               final int boundaryMode, final boolean velocityEstimation, final int touchPrediction,
+               final boolean cachedRendering, final ValueMapping mapping, final float acceleration,
+               final boolean proceduralRendering, final int ridgeCount, final float ridgeThickness)
+   {
+      this.minValue = minValue;
+      this.maxValue = maxValue;
+      this.ratio = ratio;
+      this.orientation = orientation;
+      this.boundaryMode = boundaryMode;
+      this.velocityEstimation = velocityEstimation;
+      this.touchPrediction = touchPrediction;
+      this.cachedRendering = cachedRendering;
+      this.mapping = mapping.withRange(minValue, maxValue);
+      this.acceleration = acceleration;
+      this.proceduralRendering = proceduralRendering;
+      this.ridgeCount = ridgeCount;
+      this.ridgeThickness = ridgeThickness;
+   }
+
+   /*
+    *   Set of pending changes, only the fields set are changed.
+    *   Not thread safe, meant to be filled and applied by one thread.
+    */
+
+   public static final class Editor
+   {
+      private static final int RANGE = 1;
+      private static final int RATIO = 1 << 1;
+      private static final int ORIENTATION = 1 << 2;
+      private static final int BOUNDARY_MODE = 1 << 3;
+      private static final int VELOCITY_ESTIMATION = 1 << 4;
+      private static final int TOUCH_PREDICTION = 1 << 5;
+      private static final int CACHED_RENDERING = 1 << 6;
+      private static final int MAPPING = 1 << 7;
+      private static final int ACCELERATION = 1 << 8;
+      private static final int PROCEDURAL_RENDERING = 1 << 9;
+      private static final int RIDGES = 1 << 10;
+
+      private int mChanged = 0;
+      private float mMin;
+      private float mMax;
+      private float mRatio;
+      private int mOrientation;
+      private int mBoundaryMode;
+      private boolean mVelocityEstimation;
+      private int mTouchPrediction;
+      private boolean mCachedRendering;
+      private ValueMapping mMapping;
+      private float mAcceleration;
+      private boolean mProceduralRendering;
+      private int mRidgeCount;
+      private float mRidgeThickness;
+
+      /*
+       *   Range of the reported values, i.e. already scaled by the ratio
+       */
+
+      public Editor setRange(final float min, final float max)
+      {
+         mMin = min;
+         mMax = max;
+         mChanged |= RANGE;
+         return this;
+      }
+
+      public Editor setRatio(final float ratio)
+      {
+         mRatio = ratio;
+         mChanged |= RATIO;
+         return this;
+      }
+
+      public Editor setOrientation(final int orientation)
+      {
+         mOrientation = orientation & 1;
+         mChanged |= ORIENTATION;
+         return this;
+      }
+
+      public Editor setBoundaryMode(final int mode)
+      {
+         mBoundaryMode = mode & 1;
+         mChanged |= BOUNDARY_MODE;
+         return this;
+      }
+
+      public Editor setVelocityEstimation(final boolean enabled)
+      {
+         mVelocityEstimation = enabled;
+         mChanged |= VELOCITY_ESTIMATION;
+         return this;
+      }
+
+      public Editor setTouchPrediction(final int millis)
+      {
+         mTouchPrediction = Math.max(millis, 0);
+         mChanged |= TOUCH_PREDICTION;
+         return this;
+      }
+
+      public Editor setCachedRendering(final boolean enabled)
+      {
+         mCachedRendering = enabled;
+         mChanged |= CACHED_RENDERING;
+         return this;
+      }
+
+      public Editor setMapping(final ValueMapping mapping)
+      {
+         mMapping = (mapping != null) ? mapping : ValueMapping.linear();
+         mChanged |= MAPPING;
+         return this;
+      }
+
+      /*
+       *   Value gain at full speed on top of 1, 0 is linear (see WheelPhysics)
+       */
+
+      public Editor setAcceleration(final float acceleration)
+      {
+         mAcceleration = Math.max(acceleration, 0.0f);
+         mChanged |= ACCELERATION;
+         return this;
+      }
+
+      public Editor setProceduralRendering(final boolean enabled)
+      {
+         mProceduralRendering = enabled;
+         mChanged |= PROCEDURAL_RENDERING;
+         return this;
+      }
+
+      /*
+       *   Number of ridges around the wheel and the share of a ridge
+       *   period taken by the ridge walls (0.05 .. 0.8), procedural rendering only
+       */
+
+      public Editor setRidges(final int count, final float thickness)
+      {
+         mRidgeCount = Math.max(count, 1);
+         mRidgeThickness = Math.min(Math.max(thickness, MIN_RIDGE_THICKNESS), MAX_RIDGE_THICKNESS);
+         mChanged |= RIDGES;
+         return this;
+      }
+
+      /*
+       *   New snapshot with the pending changes on top of base.
+       *   A new ratio alone rescales the current range, as setRatio() always did.
+       */
+
+      WheelConfig applyTo(final WheelConfig base)
+      {
+         final float ratio = ((mChanged & RATIO) != 0) ? mRatio : base.ratio;
+         float min = base.minValue;
+         float max = base.maxValue;
+
+         if ((mChanged & RANGE) != 0) {
+            min = mMin / ratio;
+            max = mMax / ratio;
+         } else if ((mChanged & RATIO) != 0) {
+            min = base.minValue / ratio;
+            max = base.maxValue / ratio;
+         }
+
+         return new WheelConfig(min, max, ratio,
+                                ((mChanged & ORIENTATION) != 0) ? mOrientation : base.orientation,
+                                ((mChanged & BOUNDARY_MODE) != 0) ? mBoundaryMode : base.boundaryMode,
+                                ((mChanged & VELOCITY_ESTIMATION) != 0) ? mVelocityEstimation : base.velocityEstimation,
+                                ((mChanged & TOUCH_PREDICTION) != 0) ? mTouchPrediction : base.touchPrediction,
+                                ((mChanged & CACHED_RENDERING) != 0) ? mCachedRendering : base.cachedRendering,
+                                ((mChanged & MAPPING) != 0) ? mMapping : base.mapping,
+                                ((mChanged & ACCELERATION) != 0) ? mAcceleration : base.acceleration,
+                                ((mChanged & PROCEDURAL_RENDERING) != 0) ? mProceduralRendering : base.proceduralRendering,
+                                ((mChanged & RIDGES) != 0) ? mRidgeCount : base.ridgeCount,
+                                ((mChanged & RIDGES) != 0) ? mRidgeThickness : base.ridgeThickness);
+      }
+   }
+}
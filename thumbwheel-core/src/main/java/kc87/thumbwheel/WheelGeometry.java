@@ -0,0 +1,437 @@
+package kc87.thumbwheel;
+
+import java.lang.Math;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/*
+ *   Indexed triangle mesh of the wheel, interleaved position and normal per vertex.
+ *   The inner ring comes first, followed by the outer ring with its ridges.
+ *   Corners shared by several triangles of a ring are stored once, the rings
+ *   themselves share no vertices so each ring is a contiguous vertex range.
+ *
+ *   Meshes are generated lazily on the render thread, one per level of
+ *   detail. The number of ridges is always the same, higher levels split
+ *   the curved faces of every segment into more slices, so the look and
+ *   the ridge period stay the same at any size.
+ */
+
+final class WheelGeometry
+{
+   static final int FLOATS_PER_VERTEX = 6;
+   static final int SEGMENTS = 16;
+   // Outer radius, the viewport spans -1..1
+   static final float RADIUS = 0.97f;
+   // Half length along the axis, width of the rim bands and bevels, pocket radius relative to RADIUS
+   static final float HALF_LENGTH = 0.95f;
+   static final float RIM_WIDTH = 0.15f;
+   static final float POCKET_RADIUS = 0.97f;
+   // Share of a segment taken by the walls of one ridge
+   static final float RIDGE_THICKNESS = 1.0f - HALF_LENGTH + 2.0f * RIM_WIDTH;
+
+   // Quantized vertex: normalized short position + pad, normalized byte normal + ring index
+   static final int QUANTIZED_VERTEX_BYTES = 12;
+   static final int QUANTIZED_NORMAL_OFFSET = 8;
+
+   static final int LOD_LOW = 0;
+   static final int LOD_MEDIUM = 1;
+   static final int LOD_HIGH = 2;
+   static final int LOD_COUNT = 3;
+
+   // Slices per segment and the wheel length in pixels up to which a level is used
+   private static final int[] LOD_SLICES = {1, 2, 4};
+   private static final int[] LOD_MAX_PIXELS = {256, 640, Integer.MAX_VALUE};
+
+   // Shape parameters
+   private static final float dAlpha = 3.1415926f / 8.0f;
+   private static final float d = RIM_WIDTH;
+   private static final float r = POCKET_RADIUS;
+   private static final float t = HALF_LENGTH;
+   private static final float f = RADIUS;
+
+   private static final WheelGeometry[] sGeometries = new WheelGeometry[LOD_COUNT];
+
+   final int lod;
+   final int slices;
+   // Index ranges of the rings
+   final int innerRingFirst;
+   final int innerRingCount;
+   final int outerRingFirst;
+   final int outerRingCount;
+   final int indexCount;
+   // Distinct vertices, the first innerVertexCount belong to the inner ring
+   final int vertexCount;
+   final int innerVertexCount;
+
+   private float[] mVertexNormal;
+   private short[] mIndices;
+   private FloatBuffer mVertexNormalBuffer;
+   private ShortBuffer mIndexBuffer;
+   private float[] mSoup;
+   private int mIndex = 0;
+   private int mInnerVertexCount = 0;
+
+   /*
+    *   Level of detail for a wheel of the given length in pixels
+    */
+
+   static int lodForSize(final int pixels)
+   {
+      int lod = 0;
+      while (pixels > LOD_MAX_PIXELS[lod]) {
+         lod++;
+      }
+      return lod;
+   }
+
+   /*
+    *   Shared mesh of the given level, generated on first use.
+    *   Data will be shared by all wheel instances.
+    */
+
+   static synchronized WheelGeometry get(final int lod)
+   {
+      if (sGeometries[lod] == null) {
+         sGeometries[lod] = new WheelGeometry(lod);
+      }
+      return sGeometries[lod];
+   }
+
+   private WheelGeometry(final int lod)
+   {
+      this.lod = lod;
+      slices = LOD_SLICES[lod];
+      innerRingFirst = 0;
+      innerRingCount = 6 * slices * SEGMENTS;
+      outerRingFirst = innerRingCount;
+      outerRingCount = (24 * slices + 12) * SEGMENTS;
+      indexCount = innerRingCount + outerRingCount;
+
+      generate();
+      vertexCount = mVertexNormal.length / FLOATS_PER_VERTEX;
+      innerVertexCount = mInnerVertexCount;
+   }
+
+   /*
+    *   Heap copy of the distinct vertices, generated again if it has been
+    *   released (e.g. the mesh has to be uploaded into a new context).
+    */
+
+   synchronized float[] getVertexNormals()
+   {
+      if (mVertexNormal == null) {
+         generate();
+      }
+      return mVertexNormal;
+   }
+
+   synchronized short[] getIndices()
+   {
+      if (mIndices == null) {
+         generate();
+      }
+      return mIndices;
+   }
+
+   /*
+    *   Direct buffer copies of the mesh for client side vertex arrays
+    */
+
+   synchronized FloatBuffer getVertexNormalBuffer()
+   {
+      if (mVertexNormalBuffer == null) {
+         final float[] vertexNormal = getVertexNormals();
+         ByteBuffer vertexNormalBuffer = ByteBuffer.allocateDirect(4 * vertexNormal.length);
+
+         vertexNormalBuffer.order(ByteOrder.nativeOrder());
+
+         mVertexNormalBuffer = vertexNormalBuffer.asFloatBuffer();
+         mVertexNormalBuffer.put(vertexNormal);
+      }
+      return mVertexNormalBuffer;
+   }
+
+   synchronized ShortBuffer getIndexBuffer()
+   {
+      if (mIndexBuffer == null) {
+         final short[] indices = getIndices();
+         ByteBuffer indexBuffer = ByteBuffer.allocateDirect(2 * indices.length);
+
+         indexBuffer.order(ByteOrder.nativeOrder());
+
+         mIndexBuffer = indexBuffer.asShortBuffer();
+         mIndexBuffer.put(indices);
+      }
+      return mIndexBuffer;
+   }
+
+   /*
+    *   Compact copy of the vertices for a VBO, 12 instead of 24 bytes each.
+    *   Positions (all within [-1, 1]) become normalized shorts, normals are
+    *   scaled to unit length and packed into normalized bytes together with
+    *   the ring index (1.0 inner, 0.0 outer).
+    */
+
+   synchronized ByteBuffer createQuantizedBuffer()
+   {
+      final float[] vertexNormal = getVertexNormals();
+      final ByteBuffer data = ByteBuffer.allocateDirect(QUANTIZED_VERTEX_BYTES * vertexCount)
+                                        .order(ByteOrder.nativeOrder());
+
+      for (int v = 0; v < vertexCount; v++) {
+         final int i = v * FLOATS_PER_VERTEX;
+         final float nx = vertexNormal[i + 3];
+         final float ny = vertexNormal[i + 4];
+         final float nz = vertexNormal[i + 5];
+         final float scale = 127.0f / (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+         data.putShort((short) Math.round(vertexNormal[i] * 32767.0f));
+         data.putShort((short) Math.round(vertexNormal[i + 1] * 32767.0f));
+         data.putShort((short) Math.round(vertexNormal[i + 2] * 32767.0f));
+         data.putShort((short) 0);
+         data.put((byte) Math.round(nx * scale));
+         data.put((byte) Math.round(ny * scale));
+         data.put((byte) Math.round(nz * scale));
+         data.put((byte) (v < innerVertexCount ? 127 : 0));
+      }
+      data.position(0);
+      return data;
+   }
+
+   /*
+    *   Drop the heap copies after the mesh has been uploaded to the GPU
+    */
+
+   synchronized void releaseHeapData()
+   {
+      mVertexNormal = null;
+      mIndices = null;
+   }
+
+   /*
+    *   The mesh as a plain triangle list, one vertex per index,
+    *   i.e. what the indexed mesh has to draw
+    */
+
+   synchronized float[] createSoup()
+   {
+      mSoup = new float[FLOATS_PER_VERTEX * indexCount];
+      mIndex = 0;
+      initGeometry(slices);
+
+      final float[] soup = mSoup;
+      mSoup = null;
+      return soup;
+   }
+
+   /*
+    *   Build the triangle soup, then merge identical vertices of each ring
+    */
+
+   private void generate()
+   {
+      mSoup = createSoup();
+
+      final float[] vertices = new float[mSoup.length];
+      final short[] indices = new short[indexCount];
+
+      mInnerVertexCount = deduplicate(innerRingFirst, innerRingCount, vertices, 0, indices);
+      final int count = deduplicate(outerRingFirst, outerRingCount, vertices, mInnerVertexCount, indices);
+
+      mVertexNormal = new float[FLOATS_PER_VERTEX * count];
+      System.arraycopy(vertices, 0, mVertexNormal, 0, mVertexNormal.length);
+      mIndices = indices;
+      mSoup = null;
+   }
+
+   /*
+    *   Open addressing hash over the bit patterns of the vertex components,
+    *   only exactly equal vertices are merged. Returns the new vertex count.
+    */
+
+   private int deduplicate(final int first, final int count, final float[] vertices, int vertexCount,
+                           final short[] indices)
+   {
+      int tableSize = 1;
+      while (tableSize < 2 * count) {
+         tableSize <<= 1;
+      }
+      final int[] table = new int[tableSize];
+
+      for (int n = first; n < first + count; n++) {
+         final int src = n * FLOATS_PER_VERTEX;
+         int hash = 0;
+         for (int k = 0; k < FLOATS_PER_VERTEX; k++) {
+            hash = 31 * hash + Float.floatToIntBits(mSoup[src + k]);
+         }
+
+         int slot = (hash ^ (hash >>> 16)) & (tableSize - 1);
+         int match = -1;
+         while (table[slot] != 0) {
+            final int candidate = table[slot] - 1;
+            if (sameVertex(src, vertices, candidate * FLOATS_PER_VERTEX)) {
+               match = candidate;
+               break;
+            }
+            slot = (slot + 1) & (tableSize - 1);
+         }
+
+         if (match < 0) {
+            match = vertexCount++;
+            System.arraycopy(mSoup, src, vertices, match * FLOATS_PER_VERTEX, FLOATS_PER_VERTEX);
+            table[slot] = match + 1;
+         }
+         indices[n] = (short) match;
+      }
+      return vertexCount;
+   }
+
+   private boolean sameVertex(final int src, final float[] vertices, final int dst)
+   {
+      for (int k = 0; k < FLOATS_PER_VERTEX; k++) {
+         if (Float.floatToIntBits(mSoup[src + k]) != Float.floatToIntBits(vertices[dst + k])) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /*
+    *   Calculate wheel geometry including vertex normals.
+    *   Every segment has a recessed pocket (inner ring), bevels at both ends
+    *   of the pocket, two slanted walls and the rim bands at the wheel edges.
+    *   With one slice this is exactly the original 16 segment mesh.
+    */
+
+   private void initGeometry(final int slices)
+   {
+      float cos, sin;
+      final float y1 = (t - d);
+      final float y11 = (y1 - d);
+
+      final float[] xo = new float[slices + 1];
+      final float[] zo = new float[slices + 1];
+      final float[] xi = new float[slices + 1];
+      final float[] zi = new float[slices + 1];
+
+      for (int n = 0; n < SEGMENTS; n++) {
+         sliceEdges(n, slices, xo, zo, xi, zi);
+
+         // Inner ring
+         for (int j = 0; j < slices; j++) {
+            addVertexNormal(xi[j], -y11, zi[j], xi[j], 0.0f, zi[j]);
+            addVertexNormal(xi[j], y11, zi[j], xi[j], 0.0f, zi[j]);
+            addVertexNormal(xi[j + 1], -y11, zi[j + 1], xi[j + 1], 0.0f, zi[j + 1]);
+            addVertexNormal(xi[j], y11, zi[j], xi[j], 0.0f, zi[j]);
+            addVertexNormal(xi[j + 1], y11, zi[j + 1], xi[j + 1], 0.0f, zi[j + 1]);
+            addVertexNormal(xi[j + 1], -y11, zi[j + 1], xi[j + 1], 0.0f, zi[j + 1]);
+         }
+      }
+
+      for (int n = 0; n < SEGMENTS; n++) {
+         sliceEdges(n, slices, xo, zo, xi, zi);
+
+         final float x1 = xo[0];
+         final float z1 = zo[0];
+         final float x2 = xo[slices];
+         final float z2 = zo[slices];
+         final float x11 = xi[0];
+         final float z11 = zi[0];
+         final float x22 = xi[slices];
+         final float z22 = zi[slices];
+
+         // Bevels between rim and pocket
+         for (int j = 0; j < slices; j++) {
+            addVertexNormal(xo[j], -y1, zo[j], xo[j], 1.0f, zo[j]);
+            addVertexNormal(xi[j], -y11, zi[j], xo[j], 1.0f, zo[j]);
+            addVertexNormal(xo[j + 1], -y1, zo[j + 1], xo[j], 1.0f, zo[j]);
+            addVertexNormal(xi[j], -y11, zi[j], xo[j], 1.0f, zo[j]);
+            addVertexNormal(xi[j + 1], -y11, zi[j + 1], xo[j], 1.0f, zo[j]);
+            addVertexNormal(xo[j + 1], -y1, zo[j + 1], xo[j], 1.0f, zo[j]);
+         }
+
+         for (int j = 0; j < slices; j++) {
+            addVertexNormal(xi[j], y11, zi[j], xo[j], -1.0f, zo[j]);
+            addVertexNormal(xo[j], y1, zo[j], xo[j], -1.0f, zo[j]);
+            addVertexNormal(xi[j + 1], y11, zi[j + 1], xo[j], -1.0f, zo[j]);
+            addVertexNormal(xo[j], y1, zo[j], xo[j], -1.0f, zo[j]);
+            addVertexNormal(xo[j + 1], y1, zo[j + 1], xo[j], -1.0f, zo[j]);
+            addVertexNormal(xi[j + 1], y11, zi[j + 1], xo[j], -1.0f, zo[j]);
+         }
+
+         // Walls
+         cos = (float) Math.cos(n * dAlpha + 0.5f);
+         sin = (float) Math.sin(n * dAlpha + 0.5f);
+
+         addVertexNormal(x1, -y1, z1, cos, 0.0f, sin);
+         addVertexNormal(x1, y1, z1, cos, 0.0f, sin);
+         addVertexNormal(x11, -y11, z11, cos, 0.0f, sin);
+         addVertexNormal(x1, y1, z1, cos, 0.0f, sin);
+         addVertexNormal(x11, y11, z11, cos, 0.0f, sin);
+         addVertexNormal(x11, -y11, z11, cos, 0.0f, sin);
+
+         cos = (float) Math.cos(n * dAlpha - 0.5f);
+         sin = (float) Math.sin(n * dAlpha - 0.5f);
+
+         addVertexNormal(x2, -y1, z2, cos, 0.0f, sin);
+         addVertexNormal(x22, -y11, z22, cos, 0.0f, sin);
+         addVertexNormal(x2, y1, z2, cos, 0.0f, sin);
+         addVertexNormal(x22, -y11, z22, cos, 0.0f, sin);
+         addVertexNormal(x22, y11, z22, cos, 0.0f, sin);
+         addVertexNormal(x2, y1, z2, cos, 0.0f, sin);
+
+         // Rim bands
+         for (int j = 0; j < slices; j++) {
+            addVertexNormal(xo[j], y1, zo[j], xo[j], 0.0f, zo[j]);
+            addVertexNormal(xo[j], t, zo[j], xo[j], 0.0f, zo[j]);
+            addVertexNormal(xo[j + 1], y1, zo[j + 1], xo[j + 1], 0.0f, zo[j + 1]);
+            addVertexNormal(xo[j], t, zo[j], xo[j], 0.0f, zo[j]);
+            addVertexNormal(xo[j + 1], t, zo[j + 1], xo[j + 1], 0.0f, zo[j + 1]);
+            addVertexNormal(xo[j + 1], y1, zo[j + 1], xo[j + 1], 0.0f, zo[j + 1]);
+         }
+
+         for (int j = 0; j < slices; j++) {
+            addVertexNormal(xo[j], -t, zo[j], xo[j], 0.0f, zo[j]);
+            addVertexNormal(xo[j], -y1, zo[j], xo[j], 0.0f, zo[j]);
+            addVertexNormal(xo[j + 1], -t, zo[j + 1], xo[j + 1], 0.0f, zo[j + 1]);
+            addVertexNormal(xo[j], -y1, zo[j], xo[j], 0.0f, zo[j]);
+            addVertexNormal(xo[j + 1], -y1, zo[j + 1], xo[j + 1], 0.0f, zo[j + 1]);
+            addVertexNormal(xo[j + 1], -t, zo[j + 1], xo[j + 1], 0.0f, zo[j + 1]);
+         }
+      }
+   }
+
+   /*
+    *   Outer (rim) and inner (pocket) edge points of the slice borders of segment n
+    */
+
+   private static void sliceEdges(final int n, final int slices,
+                                  final float[] xo, final float[] zo, final float[] xi, final float[] zi)
+   {
+      for (int j = 0; j <= slices; j++) {
+         final float outer = (j == 0) ? (float) n : (j == slices) ? (float) (n + 1) : (float) n + (float) j / slices;
+         final float inner = (j == 0) ? (float) n + d : (j == slices) ? (float) n + t - d :
+                             (float) n + d + (t - 2.0f * d) * j / slices;
+         xo[j] = f * (float) Math.cos(outer * dAlpha);
+         zo[j] = f * (float) Math.sin(outer * dAlpha);
+         xi[j] = f * r * (float) Math.cos(inner * dAlpha);
+         zi[j] = f * r * (float) Math.sin(inner * dAlpha);
+      }
+   }
+
+   private void addVertexNormal(float vx, float vy, float vz, float nx, float ny, float nz)
+   {
+      final int i = mIndex;
+
+      mSoup[i] = vx;
+      mSoup[i + 1] = vy;
+      mSoup[i + 2] = vz;
+      mSoup[i + 3] = nx;
+      mSoup[i + 4] = ny;
+      mSoup[i + 5] = nz;
+      mIndex = i + FLOATS_PER_VERTEX;
+   }
+}
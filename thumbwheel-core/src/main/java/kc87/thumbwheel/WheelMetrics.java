@@ -0,0 +1,286 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ *   Process wide render and input metrics of all wheels, off by default.
+ *   Recording is lock free: fixed log scale histograms in atomic arrays,
+ *   nothing is allocated after class initialization. While disabled the
+ *   render loop, touch path and dispatcher skip every clock read.
+ *
+ *   Histograms (nanoseconds):
+ *   FRAME_TIME     render thread work of a frame that drew anything
+ *   SWAP_TIME      one eglSwapBuffers() call
+ *   TOUCH_LATENCY  oldest touch sample of a frame up to the end of its swap
+ *   DISPATCH_TIME  one listener call on the UI thread
+ *
+ *   snapshot() copies everything for telemetry, values recorded
+ *   concurrently with a snapshot or reset() may land on either side.
+ */
+
+public final class WheelMetrics
+{
+   public static final int FRAME_TIME = 0;
+   public static final int SWAP_TIME = 1;
+   public static final int TOUCH_LATENCY = 2;
+   public static final int DISPATCH_TIME = 3;
+   public static final int HISTOGRAM_COUNT = 4;
+
+   /*
+    *   Bucket 0 holds everything below 1 us, above that every power
+    *   of two is split into 4 buckets (<= 19% error) up to about 1 s.
+    */
+   private static final int MIN_EXPONENT = 10;
+   private static final int MAX_EXPONENT = 30;
+   private static final int SUB_BUCKET_BITS = 2;
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   public static final int BUCKET_COUNT = 1 + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+   private static final Histogram[] sHistograms = new Histogram[HISTOGRAM_COUNT];
+   private static final AtomicLong sDrawnFrames = new AtomicLong();
+   private static final AtomicLong sSkippedFrames = new AtomicLong();
+   private static volatile long sStartNanos = System.nanoTime();
+   private static volatile boolean sEnabled = false;
+
+   static {
+      for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+         sHistograms[i] = new Histogram();
+      }
+   }
+
+   private WheelMetrics()
+   {
+   }
+
+   public static void setEnabled(final boolean enabled)
+   {
+      sEnabled = enabled;
+   }
+
+   public static boolean isEnabled()
+   {
+      return sEnabled;
+   }
+
+   public static void reset()
+   {
+      for (Histogram histogram : sHistograms) {
+         histogram.reset();
+      }
+      sDrawnFrames.set(0);
+      sSkippedFrames.set(0);
+      sStartNanos = System.nanoTime();
+   }
+
+   public static Snapshot snapshot()
+   {
+      final Distribution[] distributions = new Distribution[HISTOGRAM_COUNT];
+      for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+         distributions[i] = sHistograms[i].copy();
+      }
+      return new Snapshot(System.nanoTime() - sStartNanos, sDrawnFrames.get(), sSkippedFrames.get(), distributions);
+   }
+
+   /*
+    *   Recording, callers check isEnabled() first
+    */
+
+   static void record(final int histogram, final long nanos)
+   {
+      sHistograms[histogram].record(nanos);
+   }
+
+   static void countDrawnFrame()
+   {
+      sDrawnFrames.incrementAndGet();
+   }
+
+   static void countSkippedFrame()
+   {
+      sSkippedFrames.incrementAndGet();
+   }
+
+   static int bucketOf(final long nanos)
+   {
+      if (nanos < (1L << MIN_EXPONENT)) {
+         return 0;
+      }
+
+      final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+      if (exponent > MAX_EXPONENT) {
+         return BUCKET_COUNT - 1;
+      }
+
+      final int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+   }
+
+   /*
+    *   Largest value (exclusive) counted in the given bucket
+    */
+
+   public static long getBucketUpperBound(final int bucket)
+   {
+      if (bucket == 0) {
+         return 1L << MIN_EXPONENT;
+      }
+
+      final int exponent = MIN_EXPONENT + (bucket - 1) / SUB_BUCKETS;
+      final int subBucket = (bucket - 1) % SUB_BUCKETS;
+      return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+   }
+
+   private static final class Histogram
+   {
+      private final AtomicLongArray mmBuckets = new AtomicLongArray(BUCKET_COUNT);
+      private final AtomicLong mmCount = new AtomicLong();
+      private final AtomicLong mmSum = new AtomicLong();
+      private final AtomicLong mmMax = new AtomicLong();
+
+      void record(final long nanos)
+      {
+         final long value = Math.max(nanos, 0);
+
+         mmBuckets.incrementAndGet(bucketOf(value));
+         mmCount.incrementAndGet();
+         mmSum.addAndGet(value);
+
+         long max = mmMax.get();
+         while (value > max && !mmMax.compareAndSet(max, value)) {
+            max = mmMax.get();
+         }
+      }
+
+      void reset()
+      {
+         for (int i = 0; i < BUCKET_COUNT; i++) {
+            mmBuckets.set(i, 0);
+         }
+         mmCount.set(0);
+         mmSum.set(0);
+         mmMax.set(0);
+      }
+
+      Distribution copy()
+      {
+         final long[] buckets = new long[BUCKET_COUNT];
+         long count = 0;
+
+         // Count from the buckets, so percentiles add up
+         for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mmBuckets.get(i);
+            count += buckets[i];
+         }
+         return new Distribution(count, mmSum.get(), mmMax.get(), buckets);
+      }
+   }
+
+   /*
+    *   Immutable copy of one histogram, values in nanoseconds
+    */
+
+   public static final class Distribution
+   {
+      private final long mCount;
+      private final long mSum;
+      private final long mMax;
+      private final long[] mBuckets;
+
+      private Distribution(final long count, final long sum, final long max, final long[] buckets)
+      {
+         mCount = count;
+         mSum = sum;
+         mMax = max;
+         mBuckets = buckets;
+      }
+
+      public long getCount()
+      {
+         return mCount;
+      }
+
+      public long getMax()
+      {
+         return mMax;
+      }
+
+      public long getMean()
+      {
+         return (mCount > 0) ? mSum / mCount : 0;
+      }
+
+      /*
+       *   Upper bound of the bucket holding the given percentile (0..100)
+       */
+
+      public long getPercentile(final double percentile)
+      {
+         if (mCount == 0) {
+            return 0;
+         }
+
+         final long rank = Math.max((long) Math.ceil(percentile / 100.0 * mCount), 1);
+         long seen = 0;
+
+         for (int i = 0; i < mBuckets.length; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) {
+               return Math.min(getBucketUpperBound(i), mMax);
+            }
+         }
+         return mMax;
+      }
+
+      /*
+       *   Raw bucket counts, see getBucketUpperBound()
+       */
+
+      public long getBucket(final int bucket)
+      {
+         return mBuckets[bucket];
+      }
+   }
+
+   public static final class Snapshot
+   {
+      // Time covered, since class load or the last reset()
+      public final long durationNanos;
+      // Frames swapped and wheel frames skipped as invisible (see WheelController)
+      public final long drawnFrames;
+      public final long skippedFrames;
+      private final Distribution[] mDistributions;
+
+      private Snapshot(final long durationNanos, final long drawnFrames, final long skippedFrames,
+                       final Distribution[] distributions)
+      {
+         this.durationNanos = durationNanos;
+         this.drawnFrames = drawnFrames;
+         this.skippedFrames = skippedFrames;
+         mDistributions = distributions;
+      }
+
+      public Distribution get(final int histogram)
+      {
+         return mDistributions[histogram];
+      }
+
+      @Override
+      public String toString()
+      {
+         final StringBuilder builder = new StringBuilder();
+         final String[] names = {"frame", "swap", "touch", "dispatch"};
+
+         builder.append("drawn=").append(drawnFrames).append(" skipped=").append(skippedFrames);
+         for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            final Distribution distribution = mDistributions[i];
+            builder.append(' ').append(names[i])
+                   .append("[n=").append(distribution.getCount())
+                   .append(" p50=").append(distribution.getPercentile(50.0) / 1000)
+                   .append("us p99=").append(distribution.getPercentile(99.0) / 1000)
+                   .append("us max=").append(distribution.getMax() / 1000).append("us]");
+         }
+         return builder.toString();
+      }
+   }
+}
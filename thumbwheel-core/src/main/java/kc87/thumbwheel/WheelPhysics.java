@@ -0,0 +1,387 @@
+package kc87.thumbwheel;
+
+import java.lang.Math;
+
+/*
+ *   Drag, fling and boundary handling of a thumb wheel.
+ *   Plain Java without any Android dependencies and free of allocations,
+ *   so it can be unit tested and benchmarked on any JVM.
+ *
+ *   All input is time stamped in nanoseconds (System.nanoTime() base),
+ *   positions are in pixels along the drag axis. Rotation is in degrees,
+ *   speed in degrees per reference frame of a 60 Hz display.
+ *   The fling speed is estimated from the recent drag samples, the drag
+ *   itself can optionally be extrapolated to hide input latency.
+ *   Not thread safe, input and step() must come from the same thread.
+ */
+
+public final class WheelPhysics
+{
+   public static final int BOUNDARY_REPEAT = 0;
+   public static final int BOUNDARY_CLAMP = 1;
+
+   public static final float REFERENCE_FRAME_NANOS = 1000000000.0f / 60.0f;
+
+   private static final float DRAG_FACTOR = 100.0f;
+   private static final float MIN_DRAG_FRAMES = 0.25f;
+   private static final float SPEED_LIMIT = 90.0f;
+   private static final float DAMPING_FACTOR = 0.88f;
+   private static final float DAMPING_RATE = (float) -Math.log(DAMPING_FACTOR);
+   private static final float STOP_SPEED = 0.1f;
+   private static final float MAX_PREDICTION = 15.0f;
+   private static final float VALUE_RESOLUTION_FACTOR = 0.4f;
+   private static final int ACCELERATION_TABLE_SIZE = 64;
+   private static final float ACCELERATION_EXPONENT = 1.5f;
+
+   private static final int IDLE = 0;
+   private static final int HELD = 1;
+   private static final int FLING = 2;
+
+   private int mState = IDLE;
+   private int mBoundaryMode = BOUNDARY_REPEAT;
+   private float mMinValue = 0.0f;
+   private float mMaxValue = 100.0f;
+   private float mSize = 1.0f;
+   private long mFixedStepNanos = 0;
+   private long mAccumulatedNanos = 0;
+   private final VelocityEstimator mEstimator = new VelocityEstimator();
+   private boolean mEstimateVelocity = true;
+   private long mPredictionNanos = 0;
+   private float mPredictedOffset = 0.0f;
+   private final float[] mAccelerationTable = new float[ACCELERATION_TABLE_SIZE + 1];
+   private float mAcceleration = 0.0f;
+
+   private float mLastPosition = 0.0f;
+   private long mLastTime = 0;
+   private float mPendingStep = 0.0f;
+   private float mSpeed = 0.0f;
+   private float mRotation = 0.0f;
+   private float mValue = 0.0f;
+
+   /*
+    *   Length of the wheel along the drag axis in pixels,
+    *   dragging across the full length turns the wheel by 100 degrees.
+    */
+
+   public void setSize(final float size)
+   {
+      mSize = size > 0.0f ? size : 1.0f;
+   }
+
+   public void setRange(final float min, final float max)
+   {
+      mMinValue = min;
+      mMaxValue = max;
+   }
+
+   public void setBoundaryMode(final int mode)
+   {
+      mBoundaryMode = mode & 1;
+   }
+
+   /*
+    *   With a fixed time step > 0 the fling is integrated in steps of
+    *   exactly that length, left over time is carried to the next step().
+    *   With 0 (default) every step() integrates the given time at once.
+    */
+
+   public void setFixedTimestep(final long stepNanos)
+   {
+      mFixedStepNanos = stepNanos > 0 ? stepNanos : 0;
+      mAccumulatedNanos = 0;
+   }
+
+   /*
+    *   With estimation enabled (default) the fling speed is the least squares
+    *   velocity of the recent drag samples, otherwise it is the speed
+    *   between the last two samples.
+    */
+
+   public void setVelocityEstimation(final boolean enabled)
+   {
+      mEstimateVelocity = enabled;
+   }
+
+   /*
+    *   Extrapolate the drag by the given time, 0 (default) disables prediction.
+    *   Only the drawn rotation is affected, never the value.
+    */
+
+   public void setPrediction(final long predictionNanos)
+   {
+      mPredictionNanos = predictionNanos > 0 ? predictionNanos : 0;
+   }
+
+   /*
+    *   Speed dependent value gain, fast turns cover more of the range.
+    *   The gain rises from 1 at rest to 1 + acceleration at the speed limit,
+    *   it is tabulated whenever the acceleration changes. 0 (default) is linear.
+    */
+
+   public void setAcceleration(final float acceleration)
+   {
+      final float a = Math.max(acceleration, 0.0f);
+
+      if (a != mAcceleration) {
+         mAcceleration = a;
+         for (int i = 0; i <= ACCELERATION_TABLE_SIZE; i++) {
+            final float x = (float) i / ACCELERATION_TABLE_SIZE;
+            mAccelerationTable[i] = 1.0f + a * (float) Math.pow(x, ACCELERATION_EXPONENT);
+         }
+      }
+   }
+
+   public void setValue(final float value)
+   {
+      mValue = clampValue(value, mMinValue, mMaxValue);
+   }
+
+   /*
+    *   Move to the given value as if the wheel had been turned there,
+    *   the rotation follows the value change. Stops a running fling.
+    */
+
+   public void moveTo(final float value)
+   {
+      final float target = clampValue(value, mMinValue, mMaxValue);
+
+      mRotation += (target - mValue) / VALUE_RESOLUTION_FACTOR;
+      mValue = target;
+      mSpeed = 0.0f;
+      mPendingStep = 0.0f;
+      if (mState == FLING) {
+         mState = IDLE;
+      }
+
+      if (mRotation >= 360.0f || mRotation <= -360.0f) {
+         mRotation %= 360.0f;
+      }
+   }
+
+   public float getValue()
+   {
+      return mValue;
+   }
+
+   public float getRotation()
+   {
+      return mRotation;
+   }
+
+   /*
+    *   Rotation including the drag prediction, this is what should be drawn
+    */
+
+   public float getPredictedRotation()
+   {
+      return mRotation + mPredictedOffset;
+   }
+
+   public float getSpeed()
+   {
+      return mSpeed;
+   }
+
+   /*
+    *   True while the wheel needs further steps without new input
+    */
+
+   public boolean isActive()
+   {
+      return mState == FLING || mPendingStep != 0.0f || mPredictedOffset != 0.0f;
+   }
+
+   /*
+    *   True while a finger is on the wheel
+    */
+
+   public boolean isHeld()
+   {
+      return mState == HELD;
+   }
+
+   public void touchDown(final float position, final long timeNanos)
+   {
+      mLastPosition = position;
+      mLastTime = timeNanos;
+      mState = HELD;
+      mEstimator.clear();
+      mEstimator.addSample(position, timeNanos);
+   }
+
+   public void touchMove(final float position, final long timeNanos)
+   {
+      if (mState != HELD) {
+         touchDown(position, timeNanos);
+         return;
+      }
+
+      final float step = DRAG_FACTOR * (mLastPosition - position) / mSize;
+      final float frames = Math.max((timeNanos - mLastTime) / REFERENCE_FRAME_NANOS, MIN_DRAG_FRAMES);
+
+      mSpeed = step / frames;
+      mPendingStep += step;
+      mEstimator.addSample(position, timeNanos);
+      mLastPosition = position;
+      mLastTime = timeNanos;
+   }
+
+   public void touchUp(final long timeNanos)
+   {
+      if (mState == HELD) {
+         if (mEstimateVelocity) {
+            mSpeed = toSpeed(mEstimator.getVelocity(timeNanos));
+         }
+         mSpeed = clampValue(mSpeed, -SPEED_LIMIT, SPEED_LIMIT);
+         mAccumulatedNanos = 0;
+         mState = FLING;
+      }
+   }
+
+   public void cancel()
+   {
+      mState = IDLE;
+   }
+
+   /*
+    *   One touch sample, action is one of the TouchRingBuffer actions
+    */
+
+   void touch(final int action, final float position, final long timeNanos)
+   {
+      if (action == TouchRingBuffer.ACTION_DOWN) {
+         touchDown(position, timeNanos);
+      } else if (action == TouchRingBuffer.ACTION_MOVE) {
+         touchMove(position, timeNanos);
+      } else if (action == TouchRingBuffer.ACTION_UP) {
+         touchUp(timeNanos);
+      } else {
+         cancel();
+      }
+   }
+
+   /*
+    *   Take over the motion settings of a config snapshot,
+    *   size is the wheel length along the drag axis in pixels
+    */
+
+   void apply(final WheelConfig config, final float size)
+   {
+      setRange(config.minValue, config.maxValue);
+      setBoundaryMode(config.boundaryMode);
+      setSize(size);
+      setVelocityEstimation(config.velocityEstimation);
+      setPrediction(config.touchPrediction * 1000000L);
+      setAcceleration(config.acceleration);
+   }
+
+   /*
+    *   Apply pending drag input and advance the fling by deltaNanos,
+    *   frameTimeNanos is the time the frame will be shown.
+    *   Returns true if rotation or value changed.
+    */
+
+   public boolean step(final long frameTimeNanos, final long deltaNanos)
+   {
+      final float rotation = mRotation + mPredictedOffset;
+      final float value = mValue;
+
+      if (mPendingStep != 0.0f) {
+         advance(mPendingStep);
+         mPendingStep = 0.0f;
+      }
+
+      if (mState == FLING) {
+         if (mFixedStepNanos > 0) {
+            mAccumulatedNanos += deltaNanos;
+            while (mState == FLING && mAccumulatedNanos >= mFixedStepNanos) {
+               integrate(mFixedStepNanos);
+               mAccumulatedNanos -= mFixedStepNanos;
+            }
+         } else {
+            integrate(deltaNanos);
+         }
+      }
+
+      mPredictedOffset = 0.0f;
+      if (mState == HELD && mPredictionNanos > 0 && mValue != mMinValue && mValue != mMaxValue) {
+         final float offset = toSpeed(mEstimator.getVelocity(frameTimeNanos)) * mPredictionNanos / REFERENCE_FRAME_NANOS;
+         mPredictedOffset = clampValue(offset, -MAX_PREDICTION, MAX_PREDICTION);
+      }
+
+      return mRotation + mPredictedOffset != rotation || mValue != value;
+   }
+
+   /*
+    *   Pixels per second along the drag axis to degrees per reference frame
+    */
+
+   private float toSpeed(final float velocity)
+   {
+      return -DRAG_FACTOR * velocity / mSize * (REFERENCE_FRAME_NANOS / 1000000000.0f);
+   }
+
+   private void integrate(final long nanos)
+   {
+      if (Math.abs(mSpeed) > STOP_SPEED) {
+         /*
+          *   Simulate mass motion: the speed decays exponentially, the step is
+          *   its integral over the elapsed time, so the distance of a fling
+          *   does not depend on the frame rate
+          */
+         final float frames = nanos / REFERENCE_FRAME_NANOS;
+         final float decay = (float) Math.pow(DAMPING_FACTOR, frames);
+         final float speed = mSpeed;
+         mSpeed = speed * decay;
+         advance(speed * (1.0f - decay) / DAMPING_RATE);
+      } else {
+         mSpeed = 0.0f;
+         mState = IDLE;
+      }
+   }
+
+   private float accelerationGain(final float speed)
+   {
+      if (mAcceleration == 0.0f) {
+         return 1.0f;
+      }
+
+      final float position = Math.min(Math.abs(speed) / SPEED_LIMIT, 1.0f) * ACCELERATION_TABLE_SIZE;
+      final int i = Math.min((int) position, ACCELERATION_TABLE_SIZE - 1);
+      final float fraction = position - i;
+      return mAccelerationTable[i] + fraction * (mAccelerationTable[i + 1] - mAccelerationTable[i]);
+   }
+
+   private void advance(final float step)
+   {
+      final float valueStep = VALUE_RESOLUTION_FACTOR * step * accelerationGain(mSpeed);
+
+      if (mBoundaryMode == BOUNDARY_REPEAT) {
+         mValue = repeatValue(mValue + valueStep, mMinValue, mMaxValue);
+         mRotation += step;
+      } else {
+         mValue = clampValue(mValue + valueStep, mMinValue, mMaxValue);
+         if (mValue == mMaxValue || mValue == mMinValue) {
+            // Bounce off the boundary
+            mSpeed = -mSpeed;
+         } else {
+            mRotation += step;
+         }
+      }
+
+      // Keep the angle small, float precision degrades with magnitude
+      if (mRotation >= 360.0f || mRotation <= -360.0f) {
+         mRotation %= 360.0f;
+      }
+   }
+
+   private static float repeatValue(final float x, final float min, final float max)
+   {
+      return x > max ? min : x < min ? max : x;
+   }
+
+   private static float clampValue(final float x, final float min, final float max)
+   {
+      return x > max ? max : x < min ? min : x;
+   }
+}
@@ -0,0 +1,310 @@
+package kc87.thumbwheel;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ *   Everything one wheel does per frame that needs no device: touch input,
+ *   trace recording and replay, physics, programmatic animation, value
+ *   mapping, the sample stream and whether the frame is worth drawing.
+ *   WheelController adds the view, the config updates and the drawing.
+ *
+ *   The two platform parts stand behind interfaces, the animation (it
+ *   uses Android interpolators) and the host that delivers values to the
+ *   listeners and collects touch times for the metrics. Touch input comes
+ *   from the UI thread, update() runs on the render thread. No allocation
+ *   after construction, AllocationGuardTest checks this.
+ */
+
+final class WheelState implements TouchRingBuffer.Sink
+{
+   private static final int TOUCH_BUFFER_SIZE = 256;
+   // Smaller movements of the ridges are not worth a frame
+   private static final float MIN_VISIBLE_PIXELS = 0.5f;
+
+   /*
+    *   Programmatic value changes, advanced after the physics of every frame
+    */
+
+   interface Animation
+   {
+      /*
+       *   Move the wheel to its position at frameTimeNanos, true if the value changed
+       */
+      boolean update(WheelPhysics physics, WheelConfig config, long frameTimeNanos);
+
+      boolean isRunning();
+
+      // A new target has been requested but not picked up yet
+      boolean isPending();
+   }
+
+   interface Host
+   {
+      /*
+       *   Every consumed touch sample while metrics are enabled
+       */
+      void touched(long timeNanos);
+
+      /*
+       *   Reported value and whether the wheel is at rest,
+       *   whenever one of them changed
+       */
+      void publish(float value, boolean settled);
+   }
+
+   private final WheelPhysics mPhysics = new WheelPhysics();
+   private final TouchRingBuffer mTouchBuffer = new TouchRingBuffer(TOUCH_BUFFER_SIZE);
+   private final Animation mAnimation;
+   private final Host mHost;
+   private final AtomicReference<InputTrace.Reader> mReplayRequest = new AtomicReference<InputTrace.Reader>();
+   private volatile InputTrace.Writer mTraceWriter;
+   private volatile float mValue;
+   private volatile float mReportedValue;
+   private volatile ValueSampleStream mSampleStream;
+   private volatile long mSkippedFrames = 0;
+
+   // Render thread only
+   private float mRotation = 0.0f;
+   private float mDrawnRotation = 0.0f;
+   private boolean mSettled = true;
+   private InputTrace.Writer mRecording;
+   private InputTrace.Reader mReplay;
+   private boolean mReplayPending = false;
+   private long mReplayOffset = 0;
+
+   WheelState(final WheelConfig config, final Animation animation, final Host host)
+   {
+      mAnimation = animation;
+      mHost = host;
+      mValue = config.mapping.map(config.minValue);
+      mReportedValue = config.ratio * mValue;
+
+      mPhysics.setRange(config.minValue, config.maxValue);
+      mPhysics.setValue(config.minValue);
+   }
+
+   /*
+    *   Reported value (mapped and scaled by the ratio), the units of
+    *   the listeners, the sample stream and the animation requests
+    */
+
+   float getValue()
+   {
+      return mReportedValue;
+   }
+
+   void setSampleStream(final ValueSampleStream stream)
+   {
+      mSampleStream = stream;
+   }
+
+   /*
+    *   Record every frame and consumed touch sample into the writer, null stops
+    */
+
+   void setTraceWriter(final InputTrace.Writer writer)
+   {
+      mTraceWriter = writer;
+   }
+
+   /*
+    *   Feed the touch samples of a trace into this wheel at their original
+    *   pace, starting with the next frame and from the recorded start value
+    */
+
+   void replay(final InputTrace.Reader reader)
+   {
+      mReplayRequest.set(reader);
+   }
+
+   long getSkippedFrameCount()
+   {
+      return mSkippedFrames;
+   }
+
+   /*
+    *   UI thread, position is along the drag axis in pixels
+    */
+
+   void offerTouch(final int action, final float position, final long timeNanos)
+   {
+      mTouchBuffer.offer(action, position, timeNanos);
+   }
+
+   @Override
+   public void onTouchSample(final int action, final float position, final long timeNanos)
+   {
+      if (WheelMetrics.isEnabled()) {
+         mHost.touched(timeNanos);
+      }
+      if (mRecording != null) {
+         mRecording.touch(action, position, timeNanos);
+      }
+      mPhysics.touch(action, position, timeNanos);
+   }
+
+   /*
+    *   Advance the wheel, length is its size along the drag axis in pixels.
+    *   Returns true if it moved visibly since it was drawn last.
+    */
+
+   boolean update(final WheelConfig config, final long frameTimeNanos, final long deltaNanos, final int length)
+   {
+      mPhysics.apply(config, length);
+
+      // The frame record goes before the samples drained for it
+      mRecording = mTraceWriter;
+      if (mRecording != null) {
+         mRecording.begin(config, mPhysics.getValue());
+         mRecording.frame(frameTimeNanos, deltaNanos, length);
+      }
+
+      if (mReplayRequest.get() != null) {
+         startReplay(frameTimeNanos);
+      }
+      if (mReplay != null) {
+         replayUntil(frameTimeNanos);
+      }
+
+      // Every sample since the last frame, none is lost
+      mTouchBuffer.drain(this);
+
+      boolean dirty = mPhysics.step(frameTimeNanos, deltaNanos);
+      if (mAnimation.update(mPhysics, config, frameTimeNanos)) {
+         dirty = true;
+         if (mRecording != null) {
+            mRecording.move(InputTrace.MOVE_ANIMATION, mPhysics.getValue(), frameTimeNanos);
+         }
+      }
+
+      final boolean settled = !mPhysics.isHeld() && !mPhysics.isActive() && !mAnimation.isRunning();
+      final float value = config.mapping.map(mPhysics.getValue());
+      final ValueSampleStream stream = mSampleStream;
+
+      if (stream != null && value != mValue) {
+         stream.offer(frameTimeNanos, config.ratio * value);
+      }
+      mValue = value;
+      mReportedValue = config.ratio * value;
+      mRotation = mPhysics.getPredictedRotation();
+
+      // Listeners are served by the host, independent of frame swaps
+      if (dirty || settled != mSettled) {
+         mHost.publish(config.ratio * mValue, settled);
+         mSettled = settled;
+      }
+
+      if (!dirty) {
+         return false;
+      }
+
+      // Way of the ridges at the front of the wheel since the last drawn frame
+      float angle = (mRotation - mDrawnRotation) % 360.0f;
+      if (angle > 180.0f) {
+         angle -= 360.0f;
+      } else if (angle < -180.0f) {
+         angle += 360.0f;
+      }
+      final float pixels = 0.5f * length * WheelGeometry.RADIUS * (float) Math.toRadians(Math.abs(angle));
+
+      if (pixels < MIN_VISIBLE_PIXELS) {
+         mSkippedFrames++;
+         if (WheelMetrics.isEnabled()) {
+            WheelMetrics.countSkippedFrame();
+         }
+         return false;
+      }
+      return true;
+   }
+
+   /*
+    *   Rotation to draw for the last update(), remembered as drawn
+    */
+
+   float drawRotation()
+   {
+      mDrawnRotation = mRotation;
+      return mRotation;
+   }
+
+   boolean isActive()
+   {
+      return mPhysics.isActive() || !mTouchBuffer.isEmpty() || mAnimation.isRunning() || mAnimation.isPending() ||
+             mReplay != null || mReplayRequest.get() != null;
+   }
+
+   /*
+    *   At rest and not held, a hint when read off the render thread
+    */
+
+   boolean isIdle()
+   {
+      return !isActive() && !mPhysics.isHeld();
+   }
+
+   private void startReplay(final long frameTimeNanos)
+   {
+      final InputTrace.Reader reader = mReplayRequest.getAndSet(null);
+
+      reader.rewind();
+      mReplay = reader;
+      mReplayPending = false;
+      mReplayOffset = Long.MIN_VALUE;
+      mPhysics.cancel();
+      mPhysics.moveTo(reader.getStartValue());
+      if (mRecording != null) {
+         mRecording.move(InputTrace.MOVE_JUMP, reader.getStartValue(), frameTimeNanos);
+      }
+   }
+
+   /*
+    *   Apply the replayed touch samples and moves due by frameTimeNanos, the
+    *   recorded frames are replaced by the live ones and the live settings
+    *   stay. The first record is due now. A recording in progress gets the
+    *   replayed input as if it was live.
+    */
+
+   private void replayUntil(final long frameTimeNanos)
+   {
+      final InputTrace.Reader reader = mReplay;
+
+      try {
+         while (true) {
+            if (!mReplayPending) {
+               if (!reader.next()) {
+                  mReplay = null;
+                  return;
+               }
+               mReplayPending = true;
+            }
+
+            if (mReplayOffset == Long.MIN_VALUE) {
+               mReplayOffset = frameTimeNanos - reader.getTimeNanos();
+            }
+
+            final long timeNanos = reader.getTimeNanos() + mReplayOffset;
+            if (timeNanos > frameTimeNanos) {
+               return;
+            }
+
+            mReplayPending = false;
+            if (reader.getKind() == InputTrace.KIND_TOUCH) {
+               if (mRecording != null) {
+                  mRecording.touch(reader.getAction(), reader.getPosition(), timeNanos);
+               }
+               mPhysics.touch(reader.getAction(), reader.getPosition(), timeNanos);
+            } else if (reader.getKind() == InputTrace.KIND_MOVE) {
+               // Ahead of the frame step here, animations never run while the wheel is held
+               if (mRecording != null) {
+                  mRecording.move(InputTrace.MOVE_JUMP, reader.getPosition(), timeNanos);
+               }
+               mPhysics.cancel();
+               mPhysics.moveTo(reader.getPosition());
+            }
+         }
+      } catch (IOException e) {
+         mReplay = null;
+      }
+   }
+}
@@ -0,0 +1,270 @@
+package kc87.thumbwheel;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ *   Checks that the per frame path of a wheel allocates nothing once warmed
+ *   up. Drives WheelState, the same frame step WheelController runs, through
+ *   simulated frames with drags, flings, programmatic animations, trace
+ *   recording and replay, every mapping and boundary mode, together with
+ *   the consumer end of the sample stream and the metrics.
+ *
+ *   Not covered: ValueAnimation (Android interpolators, a linear stand-in
+ *   is used here), the Handler side of ValueDispatcher, the GL draw and the
+ *   views, they are kept free of allocation by review. The test task runs
+ *   with escape analysis off since ART does not have it and would allocate
+ *   what HotSpot optimizes away.
+ */
+
+public class AllocationGuardTest
+{
+   private static final long FRAME_NANOS = 1000000000L / 60;
+   private static final int WARMUP_FRAMES = 200000;
+   private static final int FRAMES = 100000;
+   private static final int GESTURE_FRAMES = 120;
+   private static final int LENGTH = 800;
+
+   @Rule
+   public final TemporaryFolder mFolder = new TemporaryFolder();
+
+   private final com.sun.management.ThreadMXBean mThreadBean =
+           (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+   private final LinearAnimation mAnimation = new LinearAnimation();
+   private final Host mHost = new Host();
+   private final long[] mDrainTimes = new long[64];
+   private final float[] mDrainValues = new float[64];
+
+   private WheelConfig[] mConfigs;
+   private WheelState mState;
+   private ValueSampleStream mStream;
+   private InputTrace.Writer mWriter;
+   private InputTrace.Reader mReader;
+   private long mTime = 1000000000L;
+   private float mPosition = LENGTH / 2;
+   private float mSum = 0.0f;
+
+   /*
+    *   Stand-in for ValueAnimation: straight to the target in a fixed time
+    */
+
+   private static final class LinearAnimation implements WheelState.Animation
+   {
+      private static final long DURATION_NANOS = 200000000L;
+
+      private volatile boolean mmPending = false;
+      private volatile float mmRequest;
+      private boolean mmRunning = false;
+      private float mmFrom;
+      private float mmTo;
+      private long mmStart;
+
+      void request(final float value)
+      {
+         mmRequest = value;
+         mmPending = true;
+      }
+
+      @Override
+      public boolean update(final WheelPhysics physics, final WheelConfig config, final long frameTimeNanos)
+      {
+         if (mmPending) {
+            mmPending = false;
+            mmFrom = physics.getValue();
+            mmTo = config.mapping.unmap(mmRequest / config.ratio);
+            mmStart = frameTimeNanos;
+            mmRunning = true;
+         }
+
+         if (!mmRunning || physics.isHeld()) {
+            mmRunning = false;
+            return false;
+         }
+
+         final float before = physics.getValue();
+         final float fraction = Math.min((float) (frameTimeNanos - mmStart) / DURATION_NANOS, 1.0f);
+
+         mmRunning = fraction < 1.0f;
+         physics.moveTo(mmFrom + (mmTo - mmFrom) * fraction);
+         return physics.getValue() != before;
+      }
+
+      @Override
+      public boolean isRunning()
+      {
+         return mmRunning;
+      }
+
+      @Override
+      public boolean isPending()
+      {
+         return mmPending;
+      }
+   }
+
+   private static final class Host implements WheelState.Host
+   {
+      private float mmSum = 0.0f;
+      private long mmTouchNanos = 0;
+      private int mmSettled = 0;
+
+      @Override
+      public void touched(final long timeNanos)
+      {
+         mmTouchNanos = timeNanos;
+      }
+
+      @Override
+      public void publish(final float value, final boolean settled)
+      {
+         mmSum += value;
+         if (settled) {
+            mmSettled++;
+         }
+      }
+   }
+
+   @Before
+   public void setUp()
+   {
+      mThreadBean.setThreadAllocatedMemoryEnabled(true);
+      mConfigs = createConfigs();
+      mStream = new ValueSampleStream(64, ValueSampleStream.DROP_OLDEST);
+      mState = new WheelState(mConfigs[0], mAnimation, mHost);
+      mState.setSampleStream(mStream);
+      WheelMetrics.setEnabled(true);
+   }
+
+   @After
+   public void tearDown() throws IOException
+   {
+      WheelMetrics.setEnabled(false);
+      if (mWriter != null) {
+         mWriter.close();
+      }
+      if (mReader != null) {
+         mReader.close();
+      }
+   }
+
+   @Test
+   public void framePathDoesNotAllocate() throws IOException
+   {
+      // Record during the warmup, then replay that trace while recording another
+      final File trace = mFolder.newFile("warmup.trace");
+      mWriter = new InputTrace.Writer(trace);
+      mState.setTraceWriter(mWriter);
+      run(WARMUP_FRAMES / 2);
+
+      mState.setTraceWriter(null);
+      mWriter.close();
+      mReader = new InputTrace.Reader(trace);
+      mState.replay(mReader);
+      run(WARMUP_FRAMES / 2);
+
+      // The first flush of a file channel allocates once, let it happen here
+      mWriter = new InputTrace.Writer(mFolder.newFile("frames.trace"));
+      mState.setTraceWriter(mWriter);
+      run(WARMUP_FRAMES / 20);
+
+      final long before = mThreadBean.getCurrentThreadAllocatedBytes();
+      run(FRAMES);
+      final long allocated = mThreadBean.getCurrentThreadAllocatedBytes() - before;
+
+      assertTrue(mSum != 0.0f && mHost.mmSum != 0.0f && mHost.mmSettled > 0 && mHost.mmTouchNanos != 0);
+      assertTrue(mState.getSkippedFrameCount() > 0);
+      assertEquals("bytes allocated in " + FRAMES + " frames", 0, allocated);
+   }
+
+   private static WheelConfig[] createConfigs()
+   {
+      final ValueMapping[] mappings = new ValueMapping[]{
+              ValueMapping.linear(),
+              ValueMapping.logarithmic(),
+              ValueMapping.exponential(0.0f),
+              ValueMapping.sCurve(0.0f),
+              ValueMapping.piecewise(new float[]{0.0f, 0.5f, 1.0f}, new float[]{0.0f, 0.2f, 1.0f})
+      };
+      final WheelConfig[] configs = new WheelConfig[2 * mappings.length];
+
+      for (int i = 0; i < configs.length; i++) {
+         final ValueMapping mapping = mappings[i % mappings.length];
+         final boolean linear = mapping.getType() == ValueMapping.LINEAR;
+         configs[i] = new WheelConfig(linear ? 0.0f : 20.0f, linear ? 100.0f : 20000.0f, 1.0f, 0,
+                                      (i < mappings.length) ? WheelPhysics.BOUNDARY_REPEAT : WheelPhysics.BOUNDARY_CLAMP,
+                                      (i & 1) == 0, (i & 1) == 0 ? 8 : 0, false, mapping, 0.5f * (i % 3),
+                                      false, WheelGeometry.SEGMENTS, WheelGeometry.RIDGE_THICKNESS);
+      }
+      return configs;
+   }
+
+   /*
+    *   Every gesture: touch down, drag with two samples per frame, release
+    *   into a fling and let the wheel run out. Every fourth gesture is
+    *   followed by an animation, every sixteenth by a replay of the trace.
+    */
+
+   private void run(final int frames)
+   {
+      for (int frame = 0; frame < frames; frame++) {
+         final int gesture = frame / GESTURE_FRAMES;
+         final int phase = frame % GESTURE_FRAMES;
+         final WheelConfig config = mConfigs[gesture % mConfigs.length];
+         final float direction = ((gesture & 2) == 0) ? 1.0f : -1.0f;
+
+         if (phase == 0) {
+            mState.offerTouch(TouchRingBuffer.ACTION_DOWN, mPosition, mTime - FRAME_NANOS / 2);
+         } else if (phase <= 30) {
+            for (int i = 0; i < 2; i++) {
+               mPosition += direction * (4.0f + (phase % 7));
+               mState.offerTouch(TouchRingBuffer.ACTION_MOVE, mPosition, mTime - FRAME_NANOS + i * FRAME_NANOS / 2);
+            }
+         } else if (phase == 31) {
+            mState.offerTouch(TouchRingBuffer.ACTION_UP, mPosition, mTime - FRAME_NANOS / 2);
+            mPosition = LENGTH / 2;
+         } else if (phase == 90 && (gesture & 3) == 3) {
+            mAnimation.request(config.ratio * config.mapping.map(0.5f * (config.minValue + config.maxValue)));
+         } else if (phase == 60 && (gesture & 15) == 15 && mReader != null) {
+            mState.replay(mReader);
+         }
+
+         frame(config);
+         mTime += FRAME_NANOS;
+      }
+   }
+
+   /*
+    *   The render thread part as GLRenderEngine runs it, then the
+    *   consumer end of the sample stream, normally a background thread
+    */
+
+   private void frame(final WheelConfig config)
+   {
+      final long start = System.nanoTime();
+
+      if (mState.update(config, mTime, FRAME_NANOS, LENGTH)) {
+         mSum += mState.drawRotation();
+         WheelMetrics.countDrawnFrame();
+      }
+
+      final long now = System.nanoTime();
+      WheelMetrics.record(WheelMetrics.FRAME_TIME, now - start);
+      WheelMetrics.record(WheelMetrics.TOUCH_LATENCY, now - mTime);
+
+      final int count = mStream.drain(mDrainTimes, mDrainValues, 0, mDrainValues.length);
+      for (int i = 0; i < count; i++) {
+         mSum += mDrainValues[i];
+      }
+   }
+}
@@ -0,0 +1,230 @@
+package kc87.thumbwheel;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ *   Records a wheel driven through WheelState and replays the trace
+ *   headless, the value of every frame has to come out the same
+ */
+
+public class InputTraceTest
+{
+   private static final long FRAME_NANOS = 1000000000L / 60;
+   private static final int LENGTH = 800;
+   private static final int FRAMES = 400;
+
+   @Rule
+   public final TemporaryFolder mFolder = new TemporaryFolder();
+
+   private final float[] mValues = new float[FRAMES];
+   private int mFrames = 0;
+
+   /*
+    *   Straight to the target within a few frames
+    */
+
+   private static final class LinearAnimation implements WheelState.Animation
+   {
+      private static final long DURATION_NANOS = 100000000L;
+
+      private boolean mmPending = false;
+      private float mmRequest;
+      private boolean mmRunning = false;
+      private float mmFrom;
+      private float mmTo;
+      private long mmStart;
+
+      void request(final float value)
+      {
+         mmRequest = value;
+         mmPending = true;
+      }
+
+      @Override
+      public boolean update(final WheelPhysics physics, final WheelConfig config, final long frameTimeNanos)
+      {
+         if (mmPending) {
+            mmPending = false;
+            mmFrom = physics.getValue();
+            mmTo = config.mapping.unmap(mmRequest / config.ratio);
+            mmStart = frameTimeNanos;
+            mmRunning = true;
+         }
+
+         if (!mmRunning || physics.isHeld()) {
+            mmRunning = false;
+            return false;
+         }
+
+         final float before = physics.getValue();
+         final float fraction = Math.min((float) (frameTimeNanos - mmStart) / DURATION_NANOS, 1.0f);
+
+         mmRunning = fraction < 1.0f;
+         physics.moveTo(mmFrom + (mmTo - mmFrom) * fraction);
+         return physics.getValue() != before;
+      }
+
+      @Override
+      public boolean isRunning()
+      {
+         return mmRunning;
+      }
+
+      @Override
+      public boolean isPending()
+      {
+         return mmPending;
+      }
+   }
+
+   private static final class Host implements WheelState.Host
+   {
+      @Override
+      public void touched(final long timeNanos)
+      {
+      }
+
+      @Override
+      public void publish(final float value, final boolean settled)
+      {
+      }
+   }
+
+   private static WheelConfig newConfig(final float ratio, final ValueMapping mapping, final float acceleration)
+   {
+      return new WheelConfig(20.0f, 20000.0f, ratio, 0, WheelPhysics.BOUNDARY_CLAMP,
+                             true, 8, false, mapping, acceleration,
+                             false, WheelGeometry.SEGMENTS, WheelGeometry.RIDGE_THICKNESS);
+   }
+
+   /*
+    *   Fling, animate, change the settings and fling again
+    */
+
+   private File record(final WheelConfig first, final WheelConfig second) throws IOException
+   {
+      final File file = mFolder.newFile();
+      final LinearAnimation animation = new LinearAnimation();
+      final WheelState state = new WheelState(first, animation, new Host());
+      final InputTrace.Writer writer = new InputTrace.Writer(file);
+      WheelConfig config = first;
+      float position = LENGTH / 2;
+      long time = 1000000000L;
+
+      state.setTraceWriter(writer);
+
+      for (int frame = 0; frame < FRAMES; frame++) {
+         final int phase = frame % 200;
+
+         if (frame == 200) {
+            config = second;
+         }
+
+         if (phase == 0) {
+            state.offerTouch(TouchRingBuffer.ACTION_DOWN, position, time - FRAME_NANOS / 2);
+         } else if (phase <= 20) {
+            position -= 5.0f + (phase % 4);
+            state.offerTouch(TouchRingBuffer.ACTION_MOVE, position, time - FRAME_NANOS / 2);
+         } else if (phase == 21) {
+            state.offerTouch(TouchRingBuffer.ACTION_UP, position, time - FRAME_NANOS / 2);
+         } else if (phase == 120) {
+            animation.request(config.ratio * 5000.0f);
+         }
+
+         state.update(config, time, FRAME_NANOS, LENGTH);
+         mValues[frame] = state.getValue();
+         time += FRAME_NANOS;
+      }
+
+      writer.close();
+      return file;
+   }
+
+   private void assertReplaysSame(final File file) throws IOException
+   {
+      final InputTrace.Reader reader = new InputTrace.Reader(file);
+
+      mFrames = 0;
+      try {
+         InputTraceReplay.run(reader, new InputTraceReplay.FrameListener()
+         {
+            @Override
+            public void onFrame(final long frameTimeNanos, final float value, final long computeNanos)
+            {
+               assertEquals("frame " + mFrames, mValues[mFrames], value, 0.0f);
+               mFrames++;
+            }
+         });
+      } finally {
+         reader.close();
+      }
+      assertEquals(FRAMES, mFrames);
+   }
+
+   @Test
+   public void replayMatchesRecording() throws IOException
+   {
+      final WheelConfig config = newConfig(1.0f, ValueMapping.logarithmic(), 0.5f);
+
+      assertReplaysSame(record(config, config));
+   }
+
+   @Test
+   public void replayFollowsSettingsChanges() throws IOException
+   {
+      assertReplaysSame(record(newConfig(1.0f, ValueMapping.logarithmic(), 0.5f),
+                               newConfig(2.5f, ValueMapping.sCurve(0.0f), 0.0f)));
+   }
+
+   @Test
+   public void piecewiseMappingReplays() throws IOException
+   {
+      final ValueMapping piecewise = ValueMapping.piecewise(new float[]{0.0f, 0.5f, 1.0f},
+                                                            new float[]{0.0f, 0.2f, 1.0f});
+      final ValueMapping other = ValueMapping.piecewise(new float[]{0.0f, 0.3f, 0.6f, 1.0f},
+                                                        new float[]{0.0f, 0.5f, 0.6f, 1.0f});
+
+      assertReplaysSame(record(newConfig(1.0f, piecewise, 0.5f), newConfig(2.0f, other, 0.5f)));
+      assertReplaysSame(record(newConfig(1.0f, ValueMapping.linear(), 0.5f), newConfig(1.0f, piecewise, 0.5f)));
+   }
+
+   @Test
+   public void tooLongCurveFailsTheRecording() throws IOException
+   {
+      final float[] x = new float[InputTrace.MAX_POINTS + 1];
+      final float[] y = new float[x.length];
+      for (int i = 0; i < x.length; i++) {
+         x[i] = y[i] = (float) i / (x.length - 1);
+      }
+
+      try {
+         record(newConfig(1.0f, ValueMapping.piecewise(x, y), 0.5f), newConfig(1.0f, ValueMapping.linear(), 0.5f));
+         fail("curve with " + x.length + " points recorded");
+      } catch (IOException e) {
+         assertTrue(e.getMessage().startsWith("Piecewise"));
+      }
+   }
+
+   @Test
+   public void emptyTraceIsReported() throws IOException
+   {
+      final File file = mFolder.newFile();
+      new InputTrace.Writer(file).close();
+
+      try {
+         new InputTrace.Reader(file).close();
+         fail("empty trace accepted");
+      } catch (IOException e) {
+         assertTrue(e.getMessage().startsWith("Empty"));
+      }
+   }
+}
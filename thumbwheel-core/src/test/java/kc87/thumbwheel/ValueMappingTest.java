@@ -0,0 +1,51 @@
+package kc87.thumbwheel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ValueMappingTest
+{
+   private static final int SAMPLES = 4096;
+   private static final float MIN = 20.0f;
+   private static final float MAX = 20000.0f;
+   // Largest deviation of the lookup table from the curve, relative to the exact value
+   private static final double MAX_RELATIVE_ERROR = 0.005;
+
+   private static ValueMapping[] curves()
+   {
+      return new ValueMapping[]{
+              ValueMapping.logarithmic().withRange(MIN, MAX),
+              ValueMapping.exponential(0.0f).withRange(MIN, MAX),
+              ValueMapping.sCurve(0.0f).withRange(MIN, MAX),
+              ValueMapping.piecewise(new float[]{0.0f, 0.5f, 0.8f, 1.0f},
+                                     new float[]{0.0f, 0.1f, 0.5f, 1.0f}).withRange(MIN, MAX)
+      };
+   }
+
+   @Test
+   public void lookupTableFollowsTheCurve()
+   {
+      for (ValueMapping mapping : curves()) {
+         double maxError = 0.0;
+
+         for (int i = 0; i < SAMPLES; i++) {
+            final float input = MIN + (MAX - MIN) * i / (SAMPLES - 1);
+            final double exact = mapping.evaluate((input - MIN) / (MAX - MIN));
+            maxError = Math.max(maxError, Math.abs(mapping.map(input) - exact) / Math.abs(exact));
+         }
+
+         assertTrue("curve " + mapping.getType() + ": " + maxError, maxError < MAX_RELATIVE_ERROR);
+      }
+   }
+
+   @Test
+   public void endsMapToThemselves()
+   {
+      for (ValueMapping mapping : curves()) {
+         assertEquals(MIN, mapping.map(MIN), MIN * 1.0e-5f);
+         assertEquals(MAX, mapping.map(MAX), MAX * 1.0e-5f);
+      }
+   }
+}
@@ -0,0 +1,74 @@
+package kc87.thumbwheel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class VelocityEstimatorTest
+{
+   private static final long SAMPLE_NANOS = 8000000L;
+   private static final long START_NANOS = 1000000000L;
+
+   /*
+    *   Samples of a drag at constant velocity in pixels per second
+    */
+
+   private static long linearDrag(final VelocityEstimator estimator, final float velocity, final int samples)
+   {
+      long time = START_NANOS;
+      for (int i = 0; i < samples; i++) {
+         time = START_NANOS + i * SAMPLE_NANOS;
+         estimator.addSample(500.0f + velocity * (time - START_NANOS) / 1e9f, time);
+      }
+      return time;
+   }
+
+   @Test
+   public void linearDragLinearFit()
+   {
+      final VelocityEstimator estimator = new VelocityEstimator();
+      estimator.setDegree(VelocityEstimator.DEGREE_LINEAR);
+
+      final long last = linearDrag(estimator, -1200.0f, 10);
+      assertEquals(-1200.0f, estimator.getVelocity(last), 1.0f);
+   }
+
+   @Test
+   public void linearDragQuadraticFit()
+   {
+      final VelocityEstimator estimator = new VelocityEstimator();
+
+      final long last = linearDrag(estimator, 750.0f, 10);
+      assertEquals(750.0f, estimator.getVelocity(last), 1.0f);
+   }
+
+   @Test
+   public void onlySamplesInsideTheHorizonCount()
+   {
+      final VelocityEstimator estimator = new VelocityEstimator();
+      estimator.setDegree(VelocityEstimator.DEGREE_LINEAR);
+
+      // Slow start, then 16 samples (120 ms) at the final speed, the default horizon is 100 ms
+      long time = linearDrag(estimator, 100.0f, 6);
+      float position = 500.0f + 100.0f * (time - START_NANOS) / 1e9f;
+      for (int i = 0; i < 16; i++) {
+         time += SAMPLE_NANOS;
+         position += 2000.0f * SAMPLE_NANOS / 1e9f;
+         estimator.addSample(position, time);
+      }
+      assertEquals(2000.0f, estimator.getVelocity(time), 1.0f);
+   }
+
+   @Test
+   public void restingFingerHasNoVelocity()
+   {
+      final VelocityEstimator estimator = new VelocityEstimator();
+
+      final long last = linearDrag(estimator, 1000.0f, 10);
+      assertEquals(0.0f, estimator.getVelocity(last + 50000000L), 0.0f);
+
+      estimator.clear();
+      estimator.addSample(100.0f, last);
+      assertEquals(0.0f, estimator.getVelocity(last), 0.0f);
+   }
+}
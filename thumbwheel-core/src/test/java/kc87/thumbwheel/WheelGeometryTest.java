@@ -0,0 +1,91 @@
+package kc87.thumbwheel;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ *   The indexed mesh of every level has to draw exactly the triangle soup
+ *   it was built from, and the quantized VBO copy has to decode back to it.
+ */
+
+public class WheelGeometryTest
+{
+   // Rounding to the nearest step, plus float slack
+   private static final float POSITION_TOLERANCE = 0.5f / 32767.0f + 1e-6f;
+   private static final float NORMAL_TOLERANCE = 0.5f / 127.0f + 1e-6f;
+
+   @Test
+   public void indexedMeshExpandsToSoup()
+   {
+      for (int lod = 0; lod < WheelGeometry.LOD_COUNT; lod++) {
+         final WheelGeometry geometry = WheelGeometry.get(lod);
+         final float[] soup = geometry.createSoup();
+         final float[] vertices = geometry.getVertexNormals();
+         final short[] indices = geometry.getIndices();
+
+         assertEquals(WheelGeometry.FLOATS_PER_VERTEX * geometry.indexCount, soup.length);
+         assertEquals(geometry.indexCount, indices.length);
+         assertTrue("lod " + lod + " not deduplicated", geometry.vertexCount < geometry.indexCount);
+
+         for (int n = 0; n < geometry.indexCount; n++) {
+            final int v = indices[n];
+            for (int k = 0; k < WheelGeometry.FLOATS_PER_VERTEX; k++) {
+               assertEquals("lod " + lod + " index " + n, soup[n * WheelGeometry.FLOATS_PER_VERTEX + k],
+                            vertices[v * WheelGeometry.FLOATS_PER_VERTEX + k], 0.0f);
+            }
+         }
+      }
+   }
+
+   @Test
+   public void ringsKeepTheirVertexRanges()
+   {
+      for (int lod = 0; lod < WheelGeometry.LOD_COUNT; lod++) {
+         final WheelGeometry geometry = WheelGeometry.get(lod);
+         final short[] indices = geometry.getIndices();
+
+         for (int n = geometry.innerRingFirst; n < geometry.innerRingFirst + geometry.innerRingCount; n++) {
+            assertTrue(indices[n] < geometry.innerVertexCount);
+         }
+         for (int n = geometry.outerRingFirst; n < geometry.outerRingFirst + geometry.outerRingCount; n++) {
+            assertTrue(indices[n] >= geometry.innerVertexCount && indices[n] < geometry.vertexCount);
+         }
+      }
+   }
+
+   @Test
+   public void quantizedVerticesDecode()
+   {
+      for (int lod = 0; lod < WheelGeometry.LOD_COUNT; lod++) {
+         final WheelGeometry geometry = WheelGeometry.get(lod);
+         final float[] vertices = geometry.getVertexNormals();
+         final ByteBuffer data = geometry.createQuantizedBuffer();
+
+         assertEquals(WheelGeometry.QUANTIZED_VERTEX_BYTES * geometry.vertexCount, data.capacity());
+
+         for (int v = 0; v < geometry.vertexCount; v++) {
+            final int i = v * WheelGeometry.FLOATS_PER_VERTEX;
+            final int b = v * WheelGeometry.QUANTIZED_VERTEX_BYTES;
+            final float nx = vertices[i + 3];
+            final float ny = vertices[i + 4];
+            final float nz = vertices[i + 5];
+            final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+            for (int k = 0; k < 3; k++) {
+               assertEquals(vertices[i + k], data.getShort(b + 2 * k) / 32767.0f, POSITION_TOLERANCE);
+            }
+            assertEquals(0, data.getShort(b + 6));
+
+            final int normal = b + WheelGeometry.QUANTIZED_NORMAL_OFFSET;
+            assertEquals(nx / length, data.get(normal) / 127.0f, NORMAL_TOLERANCE);
+            assertEquals(ny / length, data.get(normal + 1) / 127.0f, NORMAL_TOLERANCE);
+            assertEquals(nz / length, data.get(normal + 2) / 127.0f, NORMAL_TOLERANCE);
+            assertEquals(v < geometry.innerVertexCount ? 127 : 0, data.get(normal + 3));
+         }
+      }
+   }
+}
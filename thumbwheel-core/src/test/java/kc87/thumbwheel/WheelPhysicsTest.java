@@ -0,0 +1,235 @@
+package kc87.thumbwheel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WheelPhysicsTest
+{
+   private static final long FRAME_NANOS = 1000000000L / 60;
+   private static final long START_NANOS = 1000000000L;
+   private static final float SIZE = 100.0f;
+   // Upper bound for a fling to run out at 60 Hz
+   private static final int MAX_FLING_FRAMES = 600;
+
+   private static WheelPhysics newPhysics(final int boundaryMode, final float value)
+   {
+      final WheelPhysics physics = new WheelPhysics();
+      physics.setSize(SIZE);
+      physics.setRange(0.0f, 100.0f);
+      physics.setBoundaryMode(boundaryMode);
+      physics.setValue(value);
+      return physics;
+   }
+
+   /*
+    *   Drag by dx pixels per frame for a few frames and let go,
+    *   negative dx turns the value up. Returns the time of the release.
+    */
+
+   private static long fling(final WheelPhysics physics, final float dx)
+   {
+      float position = 400.0f;
+      long time = START_NANOS;
+
+      physics.touchDown(position, time);
+      for (int i = 0; i < 3; i++) {
+         time += FRAME_NANOS;
+         position += dx;
+         physics.touchMove(position, time);
+      }
+      physics.touchUp(time);
+      return time;
+   }
+
+   @Test
+   public void flingDecaysToIdle()
+   {
+      final WheelPhysics physics = newPhysics(WheelPhysics.BOUNDARY_REPEAT, 0.0f);
+      long time = fling(physics, -2.0f);
+
+      assertTrue(physics.isActive());
+      assertTrue(physics.getSpeed() > 0.0f);
+
+      float speed = physics.getSpeed();
+      int frames = 0;
+      while (physics.isActive() && frames < MAX_FLING_FRAMES) {
+         time += FRAME_NANOS;
+         physics.step(time, FRAME_NANOS);
+         assertTrue(Math.abs(physics.getSpeed()) <= Math.abs(speed));
+         speed = physics.getSpeed();
+         frames++;
+      }
+
+      assertFalse(physics.isActive());
+      assertEquals(0.0f, physics.getSpeed(), 0.0f);
+      assertTrue(physics.getValue() > 0.0f);
+
+      final float value = physics.getValue();
+      assertFalse(physics.step(time + FRAME_NANOS, FRAME_NANOS));
+      assertEquals(value, physics.getValue(), 0.0f);
+   }
+
+   @Test
+   public void flingDistanceIndependentOfFrameRate()
+   {
+      final float at60 = flingDistance(FRAME_NANOS);
+      final float at120 = flingDistance(FRAME_NANOS / 2);
+      final float at30 = flingDistance(FRAME_NANOS * 2);
+
+      assertTrue(at60 > 20.0f);
+      assertEquals(at60, at120, 0.005f * at60);
+      assertEquals(at60, at30, 0.01f * at60);
+   }
+
+   /*
+    *   Value covered by the same fling at the given frame period,
+    *   the range is too large to be reached
+    */
+
+   private static float flingDistance(final long frameNanos)
+   {
+      final WheelPhysics physics = newPhysics(WheelPhysics.BOUNDARY_CLAMP, 0.0f);
+      physics.setRange(0.0f, 10000.0f);
+      long time = fling(physics, -6.0f);
+
+      for (int frames = 0; physics.isActive() && frames < MAX_FLING_FRAMES * 4; frames++) {
+         time += frameNanos;
+         physics.step(time, frameNanos);
+      }
+      assertFalse(physics.isActive());
+      return physics.getValue();
+   }
+
+   @Test
+   public void clampBouncesAtMax()
+   {
+      final WheelPhysics physics = newPhysics(WheelPhysics.BOUNDARY_CLAMP, 80.0f);
+      assertBounce(physics, fling(physics, -8.0f), 100.0f);
+   }
+
+   @Test
+   public void clampBouncesAtMin()
+   {
+      final WheelPhysics physics = newPhysics(WheelPhysics.BOUNDARY_CLAMP, 20.0f);
+      assertBounce(physics, fling(physics, 8.0f), 0.0f);
+   }
+
+   private static void assertBounce(final WheelPhysics physics, long time, final float boundary)
+   {
+      final float direction = Math.signum(physics.getSpeed());
+      boolean hit = false;
+      boolean reversed = false;
+
+      for (int frames = 0; physics.isActive() && frames < MAX_FLING_FRAMES; frames++) {
+         time += FRAME_NANOS;
+         physics.step(time, FRAME_NANOS);
+
+         assertTrue(physics.getValue() >= 0.0f && physics.getValue() <= 100.0f);
+         if (physics.getValue() == boundary) {
+            hit = true;
+         } else if (hit && Math.signum(physics.getSpeed()) == -direction) {
+            reversed = true;
+         }
+      }
+
+      assertTrue("never reached " + boundary, hit);
+      assertTrue("no bounce off " + boundary, reversed);
+      assertFalse(physics.isActive());
+      assertTrue(physics.getValue() != boundary);
+   }
+
+   @Test
+   public void repeatWrapsAround()
+   {
+      final WheelPhysics physics = newPhysics(WheelPhysics.BOUNDARY_REPEAT, 80.0f);
+      long time = fling(physics, -8.0f);
+
+      float value = physics.getValue();
+      boolean wrapped = false;
+      for (int frames = 0; physics.isActive() && frames < MAX_FLING_FRAMES; frames++) {
+         time += FRAME_NANOS;
+         physics.step(time, FRAME_NANOS);
+
+         assertTrue(physics.getSpeed() >= 0.0f);
+         assertTrue(physics.getValue() >= 0.0f && physics.getValue() <= 100.0f);
+         if (physics.getValue() < value) {
+            wrapped = true;
+         }
+         value = physics.getValue();
+      }
+
+      assertTrue(wrapped);
+      assertFalse(physics.isActive());
+   }
+
+   @Test
+   public void moveToStopsFling()
+   {
+      final WheelPhysics physics = newPhysics(WheelPhysics.BOUNDARY_REPEAT, 0.0f);
+      long time = fling(physics, -4.0f);
+
+      for (int i = 0; i < 5; i++) {
+         time += FRAME_NANOS;
+         physics.step(time, FRAME_NANOS);
+      }
+      assertTrue(physics.isActive());
+
+      physics.moveTo(25.0f);
+      assertFalse(physics.isActive());
+      assertEquals(25.0f, physics.getValue(), 0.0f);
+      assertEquals(0.0f, physics.getSpeed(), 0.0f);
+
+      final float rotation = physics.getRotation();
+      assertFalse(physics.step(time + FRAME_NANOS, FRAME_NANOS));
+      assertEquals(25.0f, physics.getValue(), 0.0f);
+      assertEquals(rotation, physics.getRotation(), 0.0f);
+   }
+
+   @Test
+   public void fixedTimestepOfOneFrameMatchesVariable()
+   {
+      final WheelPhysics fixed = newPhysics(WheelPhysics.BOUNDARY_REPEAT, 0.0f);
+      final WheelPhysics variable = newPhysics(WheelPhysics.BOUNDARY_REPEAT, 0.0f);
+      fixed.setFixedTimestep(FRAME_NANOS);
+
+      long time = fling(fixed, -4.0f);
+      fling(variable, -4.0f);
+
+      for (int frames = 0; variable.isActive() && frames < MAX_FLING_FRAMES; frames++) {
+         time += FRAME_NANOS;
+         fixed.step(time, FRAME_NANOS);
+         variable.step(time, FRAME_NANOS);
+         assertEquals(variable.getValue(), fixed.getValue(), 0.0f);
+         assertEquals(variable.getRotation(), fixed.getRotation(), 0.0f);
+      }
+      assertFalse(fixed.isActive());
+   }
+
+   @Test
+   public void fixedTimestepIgnoresFrameJitter()
+   {
+      final long step = FRAME_NANOS / 2;
+      final WheelPhysics jittered = newPhysics(WheelPhysics.BOUNDARY_REPEAT, 0.0f);
+      final WheelPhysics regular = newPhysics(WheelPhysics.BOUNDARY_REPEAT, 0.0f);
+      jittered.setFixedTimestep(step);
+      regular.setFixedTimestep(step);
+
+      long time = fling(jittered, -4.0f);
+      fling(regular, -4.0f);
+
+      // 1.5 and 0.5 steps, every pair of frames covers the same time
+      for (int frames = 0; regular.isActive() && frames < MAX_FLING_FRAMES; frames++) {
+         time += 2 * step;
+         jittered.step(time - step, step + step / 2);
+         jittered.step(time, step - step / 2);
+         regular.step(time - step, step);
+         regular.step(time, step);
+         assertEquals(regular.getValue(), jittered.getValue(), 0.0f);
+         assertEquals(regular.getRotation(), jittered.getRotation(), 0.0f);
+      }
+      assertFalse(jittered.isActive());
+   }
+}
@@ -0,0 +1,139 @@
+package kc87.thumbwheel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class WheelStateTest
+{
+   private static final long FRAME_NANOS = 1000000000L / 60;
+   private static final int LENGTH = 800;
+   private static final float RATIO = 2.5f;
+
+   /*
+    *   Jumps to the requested value with the next frame, as setValue() does
+    */
+
+   private static final class JumpAnimation implements WheelState.Animation
+   {
+      private boolean mmPending = false;
+      private float mmRequest;
+
+      void request(final float value)
+      {
+         mmRequest = value;
+         mmPending = true;
+      }
+
+      @Override
+      public boolean update(final WheelPhysics physics, final WheelConfig config, final long frameTimeNanos)
+      {
+         if (!mmPending) {
+            return false;
+         }
+         mmPending = false;
+
+         final float before = physics.getValue();
+         physics.moveTo(config.mapping.unmap(mmRequest / config.ratio));
+         return physics.getValue() != before;
+      }
+
+      @Override
+      public boolean isRunning()
+      {
+         return false;
+      }
+
+      @Override
+      public boolean isPending()
+      {
+         return mmPending;
+      }
+   }
+
+   private static final class Host implements WheelState.Host
+   {
+      private float mmValue = Float.NaN;
+
+      @Override
+      public void touched(final long timeNanos)
+      {
+      }
+
+      @Override
+      public void publish(final float value, final boolean settled)
+      {
+         mmValue = value;
+      }
+   }
+
+   private final JumpAnimation mAnimation = new JumpAnimation();
+   private final Host mHost = new Host();
+   private long mTime = 1000000000L;
+
+   private static WheelConfig newConfig(final ValueMapping mapping)
+   {
+      return new WheelConfig(20.0f, 20000.0f, RATIO, 0, WheelPhysics.BOUNDARY_CLAMP,
+                             false, 0, false, mapping, 0.0f,
+                             false, WheelGeometry.SEGMENTS, WheelGeometry.RIDGE_THICKNESS);
+   }
+
+   private boolean frame(final WheelState state, final WheelConfig config)
+   {
+      mTime += FRAME_NANOS;
+      return state.update(config, mTime, FRAME_NANOS, LENGTH);
+   }
+
+   /*
+    *   Drag the wheel off its start value and let it come to rest
+    */
+
+   private void turn(final WheelState state, final WheelConfig config)
+   {
+      float position = LENGTH / 2;
+
+      state.offerTouch(TouchRingBuffer.ACTION_DOWN, position, mTime);
+      frame(state, config);
+      for (int i = 0; i < 10; i++) {
+         position -= 20.0f;
+         state.offerTouch(TouchRingBuffer.ACTION_MOVE, position, mTime);
+         frame(state, config);
+      }
+      state.offerTouch(TouchRingBuffer.ACTION_UP, position, mTime);
+      while (state.isActive()) {
+         frame(state, config);
+      }
+   }
+
+   @Test
+   public void getValueIsInReportedUnits()
+   {
+      final WheelConfig config = newConfig(ValueMapping.logarithmic());
+      final WheelState state = new WheelState(config, mAnimation, mHost);
+
+      turn(state, config);
+
+      assertEquals(mHost.mmValue, state.getValue(), 0.0f);
+   }
+
+   @Test
+   public void setValueOfGetValueDoesNotMove()
+   {
+      final ValueMapping[] mappings = new ValueMapping[]{ValueMapping.linear(), ValueMapping.logarithmic()};
+
+      for (ValueMapping mapping : mappings) {
+         final WheelConfig config = newConfig(mapping);
+         final WheelState state = new WheelState(config, mAnimation, mHost);
+
+         turn(state, config);
+         final float value = state.getValue();
+
+         mAnimation.request(value);
+         frame(state, config);
+
+         assertFalse(state.isActive());
+         assertEquals(value, state.getValue(), Math.abs(value) * 1.0e-4f);
+      }
+   }
+}
@@ -0,0 +1,81 @@
+package kc87.thumbwheel;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ *   Replays an input trace headless and prints the value of every frame
+ *   (CSV: frame time ns, value, compute ns) and a summary. With "synth" it
+ *   first writes a synthetic trace (drag and fling at 60 Hz) to the file.
+ *   Plain Java, no Android needed:
+ *
+ *   gradle :thumbwheel-core:traceTool -PtraceArgs="synth /tmp/trace.bin"
+ */
+
+public final class InputTraceTool
+{
+   private static final long FRAME_NANOS = 1000000000L / 60;
+
+   public static void main(String[] args) throws IOException
+   {
+      if (args.length == 0) {
+         System.err.println("usage: InputTraceTool [synth] <trace file>");
+         System.exit(1);
+      }
+
+      final File file = new File(args[args.length - 1]);
+
+      if (args.length > 1 && "synth".equals(args[0])) {
+         writeSynthetic(file);
+      }
+
+      final InputTrace.Reader reader = new InputTrace.Reader(file);
+      try {
+         final InputTraceReplay.Result result = InputTraceReplay.run(reader, new InputTraceReplay.FrameListener()
+         {
+            @Override
+            public void onFrame(long frameTimeNanos, float value, long computeNanos)
+            {
+               System.out.println(frameTimeNanos + "," + value + "," + computeNanos);
+            }
+         });
+
+         System.err.println(String.format("frames %d, touch samples %d, final value %.3f, " +
+                                          "compute %d ns total %d ns max, value hash %016x",
+                                          result.frames, result.touchSamples, result.finalValue,
+                                          result.computeNanos, result.maxComputeNanos, result.valueHash));
+      } finally {
+         reader.close();
+      }
+   }
+
+   private static void writeSynthetic(final File file) throws IOException
+   {
+      final InputTrace.Writer writer = new InputTrace.Writer(file);
+      final int length = 800;
+      long time = 1000000000L;
+      float position = 600.0f;
+
+      writer.begin(new WheelConfig(0.0f, 100.0f, 1.0f, 0, WheelPhysics.BOUNDARY_REPEAT, true, 0, false,
+                                   ValueMapping.linear(), 0.5f, false, WheelGeometry.SEGMENTS,
+                                   WheelGeometry.RIDGE_THICKNESS), 0.0f);
+
+      for (int frame = 0; frame < 300; frame++) {
+         writer.frame(time, FRAME_NANOS, length);
+
+         // Drag with two samples per frame for 30 frames, then let go
+         if (frame == 0) {
+            writer.touch(TouchRingBuffer.ACTION_DOWN, position, time - FRAME_NANOS / 2);
+         } else if (frame <= 30) {
+            for (int i = 0; i < 2; i++) {
+               position -= 6.0f + (frame % 5);
+               writer.touch(TouchRingBuffer.ACTION_MOVE, position, time - FRAME_NANOS / 2 + i * FRAME_NANOS / 2);
+            }
+         } else if (frame == 31) {
+            writer.touch(TouchRingBuffer.ACTION_UP, position, time - FRAME_NANOS / 2);
+         }
+         time += FRAME_NANOS;
+      }
+      writer.close();
+   }
+}
@@ -0,0 +1,80 @@
+package kc87.thumbwheel;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+public class DemoActivity extends Activity
+{
+   // Listeners run with every wheel step, the text is built without allocation
+   private final char[] mText1 = new char[11];
+   private final char[] mText2 = new char[11];
+
+   @Override
+   public void onCreate(Bundle savedInstanceState)
+   {
+      super.onCreate(savedInstanceState);
+      // Both wheels come back without GL setup after the activity was stopped
+      ThumbWheel.setSurfacePoolSize(2);
+      setContentView(R.layout.main);
+      setup();
+   }
+
+   @Override
+   public void onTrimMemory(int level)
+   {
+      super.onTrimMemory(level);
+      ThumbWheel.trimMemory(level);
+   }
+
+   private void setup()
+   {
+      final TextView valueText1 = (TextView)findViewById(R.id.wheel_1_value);
+      final TextView valueText2 = (TextView)findViewById(R.id.wheel_2_value);
+      final ThumbWheel thumbWheel1 = (ThumbWheel)findViewById(R.id.wheel_1);
+      final ThumbWheel thumbWheel2 = (ThumbWheel)findViewById(R.id.wheel_2);
+
+      showValue(valueText1, mText1, thumbWheel1.getValue());
+      showValue(valueText2, mText2, thumbWheel2.getValue());
+
+      thumbWheel1.setOnValueChangedListener(new ThumbWheel.OnValueChangeListener()
+      {
+         @Override
+         public void onValueChanged(View v, float value)
+         {
+            showValue(valueText1, mText1, value);
+         }
+      });
+
+      thumbWheel2.setOnValueChangedListener(new ThumbWheel.OnValueChangeListener()
+      {
+         @Override
+         public void onValueChanged(View v, float value)
+         {
+            showValue(valueText2, mText2, value);
+         }
+      });
+   }
+
+   /*
+    *   Integer part of the value as decimal digits, right aligned in the buffer
+    */
+
+   private static void showValue(final TextView view, final char[] text, final float value)
+   {
+      int number = (int) value;
+      final boolean negative = number < 0;
+      int start = text.length;
+
+      do {
+         text[--start] = (char) ('0' + Math.abs(number % 10));
+         number /= 10;
+      } while (number != 0);
+
+      if (negative) {
+         text[--start] = '-';
+      }
+      view.setText(text, start, text.length - start);
+   }
+}
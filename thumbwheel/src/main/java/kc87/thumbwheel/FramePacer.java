@@ -0,0 +1,93 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/*
+ *   Delivers display vsync to the render engine.
+ *   Choreographer only works on a looper thread, so frame callbacks
+ *   are registered on the main thread and forwarded as render requests.
+ *   One callback is posted per requestFrame(), nothing runs while idle.
+ */
+
+final class FramePacer implements Choreographer.FrameCallback, Runnable
+{
+   private static final long DEFAULT_FRAME_INTERVAL = 1000000000L / 60;
+
+   private final GLRenderEngine mEngine;
+   private final Handler mHandler = new Handler(Looper.getMainLooper());
+   private final AtomicBoolean mFrameRequested = new AtomicBoolean();
+   private final AtomicBoolean mFrameArrived = new AtomicBoolean();
+   private Choreographer mChoreographer;
+
+   private volatile long mFrameTimeNanos = 0;
+   private long mLastFrameTimeNanos = 0;
+   private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL;
+
+   FramePacer(final GLRenderEngine engine)
+   {
+      mEngine = engine;
+   }
+
+   /*
+    *   Ask for the next vsync, may be called from any thread.
+    */
+
+   void requestFrame()
+   {
+      if (mFrameRequested.compareAndSet(false, true)) {
+         mHandler.post(this);
+      }
+   }
+
+   /*
+    *   Returns the vsync time stamp if a new vsync arrived since the
+    *   last call, -1 otherwise. Render thread only.
+    */
+
+   long consumeFrame()
+   {
+      if (!mFrameArrived.getAndSet(false)) {
+         return -1;
+      }
+
+      final long frameTime = mFrameTimeNanos;
+      final long interval = frameTime - mLastFrameTimeNanos;
+
+      // Track the refresh period of the display (60, 90, 120 Hz ...)
+      if (interval > mFrameIntervalNanos / 2 && interval < (3 * mFrameIntervalNanos) / 2) {
+         mFrameIntervalNanos = (7 * mFrameIntervalNanos + interval) / 8;
+      } else if (interval > 0 && interval <= mFrameIntervalNanos / 2) {
+         mFrameIntervalNanos = interval;
+      }
+
+      mLastFrameTimeNanos = frameTime;
+      return frameTime;
+   }
+
+   long getFrameIntervalNanos()
+   {
+      return mFrameIntervalNanos;
+   }
+
+   @Override
+   public void run()
+   {
+      if (mChoreographer == null) {
+         mChoreographer = Choreographer.getInstance();
+      }
+      mChoreographer.postFrameCallback(this);
+   }
+
+   @Override
+   public void doFrame(final long frameTimeNanos)
+   {
+      mFrameTimeNanos = frameTimeNanos;
+      mFrameRequested.set(false);
+      mFrameArrived.set(true);
+      mEngine.requestRender();
+   }
+}
@@ -0,0 +1,103 @@
+package kc87.thumbwheel;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import static android.opengl.GLES10.*;
+
+/*
+ *   Fixed function fallback for contexts without GLES 2.0 support.
+ *   Vertex and index data are read from client side buffers on every draw.
+ *   Cached and procedural rendering need shaders, the mesh is drawn instead.
+ */
+
+final class GLES10WheelRenderer extends WheelRenderer
+{
+   private WheelGeometry mGeometry;
+   private ShortBuffer mIndexBuffer;
+
+   @Override
+   void init()
+   {
+      glMatrixMode(GL_PROJECTION);
+      glLoadIdentity();
+      glOrthof(-1.0f, 1.0f, -1.0f, 1.0f, -1.5f, 1.0f);
+      glMatrixMode(GL_MODELVIEW);
+      glLoadIdentity();
+
+      glEnableClientState(GL_NORMAL_ARRAY);
+      glEnableClientState(GL_VERTEX_ARRAY);
+
+      glLightfv(GL_LIGHT0, GL_POSITION, lightPosition, 0);
+      glLightfv(GL_LIGHT0, GL_DIFFUSE, lightDColor, 0);
+      glLightfv(GL_LIGHT0, GL_SPECULAR, lightSColor, 0);
+
+      glMaterialfv(GL_FRONT_AND_BACK, GL_SHININESS, matShininess, 0);
+
+      glEnable(GL_DEPTH_TEST);
+      glEnable(GL_LIGHTING);
+      glEnable(GL_LIGHT0);
+      glEnable(GL_NORMALIZE);
+      glShadeModel(GL_SMOOTH);
+      glEnable(GL_CULL_FACE);
+      glCullFace(GL_BACK);
+      glFrontFace(GL_CCW);
+      glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+   }
+
+   /*
+    *   There is no sprite cache in the fixed function path,
+    *   cached wheels are drawn from the mesh as well.
+    */
+
+   @Override
+   void beginFrame(final int width, final int height)
+   {
+      glViewport(0, 0, width, height);
+      glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+   }
+
+   @Override
+   void drawWheel(final int x, final int y, final int width, final int height,
+                  final float rotation, final WheelConfig config,
+                  final float[] matDiffuseOuter, final float[] matSpecularOuter,
+                  final float[] matDiffuseInner, final float[] matSpecularInner)
+   {
+      final int orientation = config.orientation;
+      final WheelGeometry geometry = WheelGeometry.get(WheelGeometry.lodForSize(
+              (orientation == ThumbWheel.Orientation.HORIZONTAL) ? width : height));
+
+      if (geometry != mGeometry) {
+         final FloatBuffer vertexNormalBuffer = geometry.getVertexNormalBuffer();
+
+         vertexNormalBuffer.position(0);
+         glVertexPointer(3, GL_FLOAT, WheelGeometry.FLOATS_PER_VERTEX * 4, vertexNormalBuffer);
+         vertexNormalBuffer.position(3);
+         glNormalPointer(GL_FLOAT, WheelGeometry.FLOATS_PER_VERTEX * 4, vertexNormalBuffer);
+         mIndexBuffer = geometry.getIndexBuffer();
+         mGeometry = geometry;
+      }
+
+      glViewport(x, y, width, height);
+      glLoadIdentity();
+
+      if (orientation == ThumbWheel.Orientation.HORIZONTAL) {
+         glRotatef(rotation, 0.0f, 1.0f, 0.0f);
+      } else if (orientation == ThumbWheel.Orientation.VERTICAL) {
+         glRotatef(90.0f, 0.0f, 0.0f, 1.0f);
+         glRotatef(rotation, 0.0f, 1.0f, 0.0f);
+      }
+
+      // Outer ring
+      glMaterialfv(GL_FRONT_AND_BACK, GL_DIFFUSE, matDiffuseOuter, 0);
+      glMaterialfv(GL_FRONT_AND_BACK, GL_SPECULAR, matSpecularOuter, 0);
+      mIndexBuffer.position(geometry.outerRingFirst);
+      glDrawElements(GL_TRIANGLES, geometry.outerRingCount, GL_UNSIGNED_SHORT, mIndexBuffer);
+
+      // Inner ring
+      glMaterialfv(GL_FRONT_AND_BACK, GL_DIFFUSE, matDiffuseInner, 0);
+      glMaterialfv(GL_FRONT_AND_BACK, GL_SPECULAR, matSpecularInner, 0);
+      mIndexBuffer.position(geometry.innerRingFirst);
+      glDrawElements(GL_TRIANGLES, geometry.innerRingCount, GL_UNSIGNED_SHORT, mIndexBuffer);
+   }
+}
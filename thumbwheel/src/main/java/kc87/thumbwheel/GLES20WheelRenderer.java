@@ -0,0 +1,612 @@
+package kc87.thumbwheel;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import android.opengl.Matrix;
+import android.util.Log;
+
+import static android.opengl.GLES20.*;
+
+/*
+ *   Programmable pipeline backend for GLES 2.0 and 3.0 contexts.
+ *   Every level of detail of the wheel geometry is uploaded into its own
+ *   vertex and index buffer on first use, either as floats or in the compact
+ *   quantized format (see WheelGeometry). Lighting is done in
+ *   the vertex shader the same way as the fixed function pipeline does it.
+ *   Both rings share one draw call, the ring index is a vertex attribute
+ *   and the materials are a uniform array.
+ *
+ *   In cached mode a wheel is drawn as one textured quad showing the
+ *   matching frame of a pre-rendered sprite atlas (see SpriteAtlasCache).
+ *
+ *   In procedural mode there is no mesh at all: a quad covering the viewport
+ *   is shaded per pixel from the analytic shape of the wheel (cylinder,
+ *   ridge walls, bevels and rims, the same shape WheelGeometry tessellates).
+ *   Edges are smoothed over the footprint of a pixel and the ridges fade to
+ *   their average shade once they get smaller than a pixel, so there is no
+ *   aliasing without multisampling and no level of detail to pick.
+ */
+
+final class GLES20WheelRenderer extends WheelRenderer
+{
+   private static final String LOG_TAG = "GLES20WheelRenderer";
+
+   private static final int ATTRIB_POSITION = 0;
+   private static final int ATTRIB_NORMAL = 1;
+   private static final int ATTRIB_RING = 2;
+   private static final int FLOATS_PER_VERTEX = WheelGeometry.FLOATS_PER_VERTEX + 1;
+
+   // The ridge pattern repeats after this angle
+   private static final float RIDGE_PERIOD = 360.0f / WheelGeometry.SEGMENTS;
+   private static final int MAX_ATLAS_FRAMES = 32;
+   private static final int MIN_ATLAS_FRAMES = 8;
+
+   /*
+    *   Directional light from +z (lightPosition), white diffuse and specular,
+    *   infinite viewer, default ambient terms (0.2 * 0.2).
+    *   With light and viewer both on +z the half vector equals the light direction.
+    */
+   private static final String VERTEX_SHADER =
+           "uniform mat4 uMvpMatrix;\n" +
+           "uniform mat4 uModelViewMatrix;\n" +
+           "uniform vec4 uMaterial[4];\n" +
+           "attribute vec4 aPosition;\n" +
+           "attribute vec3 aNormal;\n" +
+           "attribute float aRing;\n" +
+           "varying vec4 vColor;\n" +
+           "const vec3 LIGHT_DIR = vec3(0.0, 0.0, 1.0);\n" +
+           "const float AMBIENT = 0.04;\n" +
+           "const float SHININESS = " + matShininess[0] + ";\n" +
+           "void main() {\n" +
+           "   vec3 n = normalize((uModelViewMatrix * vec4(aNormal, 0.0)).xyz);\n" +
+           "   float nDotL = max(dot(n, LIGHT_DIR), 0.0);\n" +
+           "   float spec = nDotL > 0.0 ? pow(nDotL, SHININESS) : 0.0;\n" +
+           "   vec4 diffuse = mix(uMaterial[0], uMaterial[2], aRing);\n" +
+           "   vec4 specular = mix(uMaterial[1], uMaterial[3], aRing);\n" +
+           "   vColor = vec4(AMBIENT + diffuse.rgb * nDotL + specular.rgb * spec, diffuse.a);\n" +
+           "   gl_Position = uMvpMatrix * aPosition;\n" +
+           "}\n";
+
+   private static final String FRAGMENT_SHADER =
+           "precision mediump float;\n" +
+           "varying vec4 vColor;\n" +
+           "void main() {\n" +
+           "   gl_FragColor = vColor;\n" +
+           "}\n";
+
+   private static final String SPRITE_VERTEX_SHADER =
+           "uniform vec4 uTexRect;\n" +
+           "attribute vec2 aPosition;\n" +
+           "varying vec2 vTexCoord;\n" +
+           "void main() {\n" +
+           "   vTexCoord = mix(uTexRect.xy, uTexRect.zw, aPosition * 0.5 + 0.5);\n" +
+           "   gl_Position = vec4(aPosition, 0.0, 1.0);\n" +
+           "}\n";
+
+   private static final String SPRITE_FRAGMENT_SHADER =
+           "precision mediump float;\n" +
+           "uniform sampler2D uTexture;\n" +
+           "varying vec2 vTexCoord;\n" +
+           "void main() {\n" +
+           "   gl_FragColor = texture2D(uTexture, vTexCoord);\n" +
+           "}\n";
+
+   private static final String PROCEDURAL_VERTEX_SHADER =
+           "uniform float uVertical;\n" +
+           "attribute vec2 aPosition;\n" +
+           "varying vec2 vPosition;\n" +
+           "void main() {\n" +
+           "   vPosition = mix(aPosition, vec2(aPosition.y, -aPosition.x), uVertical);\n" +
+           "   gl_Position = vec4(aPosition, 0.0, 1.0);\n" +
+           "}\n";
+
+   /*
+    *   vPosition: x across, y along the wheel axis, z is towards the viewer.
+    *   uShape: ridge count, leading and trailing wall width (in ridge periods),
+    *   rotation (in ridge periods). uPixel: size of a pixel across and along the axis.
+    *   Same light as the mesh shader.
+    */
+   private static final String PROCEDURAL_FRAGMENT_SHADER =
+           "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+           "precision highp float;\n" +
+           "#else\n" +
+           "precision mediump float;\n" +
+           "#endif\n" +
+           "uniform vec4 uMaterial[4];\n" +
+           "uniform vec4 uShape;\n" +
+           "uniform vec2 uPixel;\n" +
+           "varying vec2 vPosition;\n" +
+           "const float TWO_PI = 6.2831853;\n" +
+           "const float RADIUS = " + WheelGeometry.RADIUS + ";\n" +
+           "const float HALF_LENGTH = " + WheelGeometry.HALF_LENGTH + ";\n" +
+           "const float RIM = " + (WheelGeometry.HALF_LENGTH - WheelGeometry.RIM_WIDTH) + ";\n" +
+           "const float POCKET = " + (WheelGeometry.HALF_LENGTH - 2.0f * WheelGeometry.RIM_WIDTH) + ";\n" +
+           "const float DEPTH = " + (1.0f - WheelGeometry.POCKET_RADIUS) + ";\n" +
+           "const float BEVEL_SLOPE = 1.0;\n" +
+           "const float AMBIENT = 0.04;\n" +
+           "const float SHININESS = " + matShininess[0] + ";\n" +
+           "void main() {\n" +
+           "   float c = clamp(vPosition.x / RADIUS, -1.0, 1.0);\n" +
+           "   float z = sqrt(1.0 - c * c);\n" +
+           "   float v = abs(vPosition.y);\n" +
+           "   float coverage = clamp((RADIUS - abs(vPosition.x)) / uPixel.x + 0.5, 0.0, 1.0) *\n" +
+           "                    clamp((HALF_LENGTH - v) / uPixel.y + 0.5, 0.0, 1.0);\n" +
+           // Position within the ridge period, the crest is at 0
+           "   float p = fract(atan(z, c) / TWO_PI * uShape.x + uShape.w + 0.5) - 0.5;\n" +
+           // Half the footprint of a pixel in ridge periods, grows towards the silhouette
+           "   float h = 0.5 * uPixel.x * uShape.x / (TWO_PI * RADIUS * max(z, 0.001));\n" +
+           "   float detail = 1.0 - smoothstep(0.1, 0.2, h);\n" +
+           "   float lead = smoothstep(-h, h, p) * (1.0 - smoothstep(uShape.y - h, uShape.y + h, p));\n" +
+           "   float trail = smoothstep(-uShape.z - h, -uShape.z + h, p) * (1.0 - smoothstep(-h, h, p));\n" +
+           "   float pocket = mix(1.0 - uShape.y - uShape.z, 1.0 - lead - trail, detail);\n" +
+           "   float rim = smoothstep(RIM - uPixel.y, RIM + uPixel.y, v);\n" +
+           "   float bevel = pocket * smoothstep(POCKET - uPixel.y, POCKET + uPixel.y, v) * (1.0 - rim);\n" +
+           // Wall slopes in radius per radian, none on the rims and bevels
+           "   float slope = DEPTH * uShape.x / TWO_PI * (lead / uShape.y - trail / uShape.z) * detail * (1.0 - rim - bevel);\n" +
+           "   vec3 n = normalize(vec3(c - z * slope, -sign(vPosition.y) * bevel * BEVEL_SLOPE, z + c * slope));\n" +
+           "   float ring = pocket * (1.0 - smoothstep(POCKET - uPixel.y, POCKET + uPixel.y, v));\n" +
+           "   float nDotL = max(n.z, 0.0);\n" +
+           "   float spec = nDotL > 0.0 ? pow(nDotL, SHININESS) : 0.0;\n" +
+           "   vec4 diffuse = mix(uMaterial[0], uMaterial[2], ring);\n" +
+           "   vec4 specular = mix(uMaterial[1], uMaterial[3], ring);\n" +
+           "   vec3 color = AMBIENT + diffuse.rgb * nDotL + specular.rgb * spec;\n" +
+           "   gl_FragColor = vec4(color * coverage, mix(1.0, diffuse.a, coverage));\n" +
+           "}\n";
+
+   private static final float[] QUAD = new float[]{-1.0f, -1.0f, 1.0f, -1.0f, -1.0f, 1.0f, 1.0f, 1.0f};
+
+   private final SpriteAtlasCache mAtlasCache = new SpriteAtlasCache();
+   private final SpriteAtlasCache.Key mAtlasKey = new SpriteAtlasCache.Key();
+   private final int[] mHandles = new int[2];
+
+   private final float[] mProjection = new float[16];
+   private final float[] mModelView = new float[16];
+   private final float[] mMvp = new float[16];
+   private final float[] mMaterials = new float[16];
+
+   private static volatile boolean sQuantized = false;
+
+   private final int[] mVertexBuffers = new int[WheelGeometry.LOD_COUNT];
+   private final int[] mIndexBuffers = new int[WheelGeometry.LOD_COUNT];
+   private final boolean[] mQuantized = new boolean[WheelGeometry.LOD_COUNT];
+
+   private int mProgram = 0;
+   private int mCurrentBuffer = 0;
+   private int mMvpLocation = -1;
+   private int mModelViewLocation = -1;
+   private int mMaterialLocation = -1;
+
+   private int mSpriteProgram = 0;
+   private int mQuadBuffer = 0;
+   private int mTexRectLocation = -1;
+
+   private int mProceduralProgram = 0;
+   private int mVerticalLocation = -1;
+   private int mShapeLocation = -1;
+   private int mPixelLocation = -1;
+   private int mProceduralMaterialLocation = -1;
+   private int mCurrentProgram = 0;
+   private int mMaxTextureSize = 0;
+
+   // Set by the first incomplete atlas framebuffer, no atlas is tried again in this context
+   private boolean mAtlasUnsupported = false;
+
+   /*
+    *   Use the quantized vertex format for meshes uploaded from now on
+    */
+
+   static void setQuantizedGeometry(final boolean quantized)
+   {
+      sQuantized = quantized;
+   }
+
+   @Override
+   void init()
+   {
+      mProgram = createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+      mMvpLocation = glGetUniformLocation(mProgram, "uMvpMatrix");
+      mModelViewLocation = glGetUniformLocation(mProgram, "uModelViewMatrix");
+      mMaterialLocation = glGetUniformLocation(mProgram, "uMaterial");
+
+      mSpriteProgram = createProgram(SPRITE_VERTEX_SHADER, SPRITE_FRAGMENT_SHADER);
+      mTexRectLocation = glGetUniformLocation(mSpriteProgram, "uTexRect");
+      glUseProgram(mSpriteProgram);
+      glUniform1i(glGetUniformLocation(mSpriteProgram, "uTexture"), 0);
+      mQuadBuffer = uploadQuad();
+
+      mProceduralProgram = createProgram(PROCEDURAL_VERTEX_SHADER, PROCEDURAL_FRAGMENT_SHADER);
+      mVerticalLocation = glGetUniformLocation(mProceduralProgram, "uVertical");
+      mShapeLocation = glGetUniformLocation(mProceduralProgram, "uShape");
+      mPixelLocation = glGetUniformLocation(mProceduralProgram, "uPixel");
+      mProceduralMaterialLocation = glGetUniformLocation(mProceduralProgram, "uMaterial");
+
+      glGetIntegerv(GL_MAX_TEXTURE_SIZE, mHandles, 0);
+      mMaxTextureSize = mHandles[0];
+      mAtlasUnsupported = false;
+
+      Matrix.orthoM(mProjection, 0, -1.0f, 1.0f, -1.0f, 1.0f, -1.5f, 1.0f);
+
+      glEnable(GL_DEPTH_TEST);
+      glEnable(GL_CULL_FACE);
+      glCullFace(GL_BACK);
+      glFrontFace(GL_CCW);
+      glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+   }
+
+   @Override
+   void beginFrame(final int width, final int height)
+   {
+      glViewport(0, 0, width, height);
+      glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+   }
+
+   /*
+    *   Sprite atlases are re-rendered when needed again,
+    *   the meshes are small and stay.
+    */
+
+   @Override
+   void trimMemory()
+   {
+      mAtlasCache.clear();
+   }
+
+   /*
+    *   Wheels of one frame share the program and buffer bindings,
+    *   every further wheel only costs its uniforms and one draw call.
+    */
+
+   @Override
+   void drawWheel(final int x, final int y, final int width, final int height,
+                  final float rotation, final WheelConfig config,
+                  final float[] matDiffuseOuter, final float[] matSpecularOuter,
+                  final float[] matDiffuseInner, final float[] matSpecularInner)
+   {
+      final int orientation = config.orientation;
+      SpriteAtlasCache.Atlas atlas = null;
+
+      if (config.cachedRendering && !config.proceduralRendering && !mAtlasUnsupported) {
+         mAtlasKey.set(width, height, orientation, matDiffuseOuter, matSpecularOuter, matDiffuseInner, matSpecularInner);
+         atlas = mAtlasCache.get(mAtlasKey);
+         if (atlas == null) {
+            atlas = createAtlas(mAtlasKey);
+         }
+      }
+
+      glViewport(x, y, width, height);
+
+      if (atlas != null) {
+         drawSprite(atlas, rotation);
+      } else {
+         System.arraycopy(matDiffuseOuter, 0, mMaterials, 0, 4);
+         System.arraycopy(matSpecularOuter, 0, mMaterials, 4, 4);
+         System.arraycopy(matDiffuseInner, 0, mMaterials, 8, 4);
+         System.arraycopy(matSpecularInner, 0, mMaterials, 12, 4);
+         if (config.proceduralRendering) {
+            drawProcedural(width, height, rotation, config);
+         } else {
+            drawMesh(useMeshProgram(width, height, orientation), rotation, orientation);
+         }
+      }
+   }
+
+   /*
+    *   Shade the whole viewport analytically, using the materials in mMaterials.
+    *   The walls of a ridge are split like the ones of the mesh (3 : 4).
+    */
+
+   private void drawProcedural(final int width, final int height, final float rotation, final WheelConfig config)
+   {
+      final boolean vertical = (config.orientation == ThumbWheel.Orientation.VERTICAL);
+      final int ridges = config.ridgeCount;
+      final float leadingWall = config.ridgeThickness * WheelGeometry.RIM_WIDTH / WheelGeometry.RIDGE_THICKNESS;
+      // Reduced in double, float runs out of fraction digits after many turns
+      final double phase = (double) rotation / 360.0 * ridges;
+
+      useProceduralProgram();
+      glUniform1f(mVerticalLocation, vertical ? 1.0f : 0.0f);
+      glUniform4f(mShapeLocation, ridges, leadingWall, config.ridgeThickness - leadingWall,
+                  (float) (phase - Math.floor(phase)));
+      glUniform2f(mPixelLocation, 2.0f / (vertical ? height : width), 2.0f / (vertical ? width : height));
+      glUniform4fv(mProceduralMaterialLocation, 4, mMaterials, 0);
+      glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+   }
+
+   /*
+    *   Draw the mesh into the current viewport, using the materials in mMaterials
+    */
+
+   private void drawMesh(final WheelGeometry geometry, final float rotation, final int orientation)
+   {
+      if (orientation == ThumbWheel.Orientation.VERTICAL) {
+         Matrix.setRotateM(mModelView, 0, 90.0f, 0.0f, 0.0f, 1.0f);
+         Matrix.rotateM(mModelView, 0, rotation, 0.0f, 1.0f, 0.0f);
+      } else {
+         Matrix.setRotateM(mModelView, 0, rotation, 0.0f, 1.0f, 0.0f);
+      }
+      Matrix.multiplyMM(mMvp, 0, mProjection, 0, mModelView, 0);
+
+      glUniformMatrix4fv(mMvpLocation, 1, false, mMvp, 0);
+      glUniformMatrix4fv(mModelViewLocation, 1, false, mModelView, 0);
+      glUniform4fv(mMaterialLocation, 4, mMaterials, 0);
+
+      // Both rings in one go
+      glDrawElements(GL_TRIANGLES, geometry.indexCount, GL_UNSIGNED_SHORT, 0);
+   }
+
+   private void drawSprite(final SpriteAtlasCache.Atlas atlas, final float rotation)
+   {
+      float phase = rotation % RIDGE_PERIOD;
+      if (phase < 0.0f) {
+         phase += RIDGE_PERIOD;
+      }
+
+      final int frame = (int) (phase / RIDGE_PERIOD * atlas.frames + 0.5f) % atlas.frames;
+      final int x = (frame % atlas.columns) * atlas.cellWidth;
+      final int y = (frame / atlas.columns) * atlas.cellHeight;
+
+      useSpriteProgram();
+      glBindTexture(GL_TEXTURE_2D, atlas.texture);
+      glUniform4f(mTexRectLocation,
+                  (float) x / atlas.width, (float) y / atlas.height,
+                  (float) (x + atlas.cellWidth) / atlas.width, (float) (y + atlas.cellHeight) / atlas.height);
+      glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+   }
+
+   /*
+    *   Render one ridge period of rotation steps into a new atlas texture.
+    *   The number of steps is limited by the cache budget and the maximum
+    *   texture size, returns null if the wheel is too large to be cached.
+    *   If the framebuffer is incomplete cached rendering is turned off for
+    *   this context, the wheels are drawn as meshes from then on.
+    */
+
+   private SpriteAtlasCache.Atlas createAtlas(final SpriteAtlasCache.Key key)
+   {
+      final int cellBytes = 4 * key.width * key.height;
+      final int columns = (key.width > 0) ? Math.min(mMaxTextureSize / key.width, MAX_ATLAS_FRAMES) : 0;
+      final int maxRows = (key.height > 0) ? mMaxTextureSize / key.height : 0;
+      final int frames = Math.min(Math.min(MAX_ATLAS_FRAMES, columns * maxRows),
+                                  (cellBytes > 0) ? SpriteAtlasCache.getBudget() / 2 / cellBytes : 0);
+
+      if (frames < MIN_ATLAS_FRAMES) {
+         return null;
+      }
+
+      final int width = columns * key.width;
+      final int height = ((frames + columns - 1) / columns) * key.height;
+
+      glGenTextures(1, mHandles, 0);
+      final int texture = mHandles[0];
+      glBindTexture(GL_TEXTURE_2D, texture);
+      glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+      glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+      glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+      glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+      glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, null);
+
+      glGenFramebuffers(1, mHandles, 0);
+      glGenRenderbuffers(1, mHandles, 1);
+      glBindFramebuffer(GL_FRAMEBUFFER, mHandles[0]);
+      glBindRenderbuffer(GL_RENDERBUFFER, mHandles[1]);
+      glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH_COMPONENT16, width, height);
+      glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, texture, 0);
+      glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_RENDERBUFFER, mHandles[1]);
+
+      final boolean complete = glCheckFramebufferStatus(GL_FRAMEBUFFER) == GL_FRAMEBUFFER_COMPLETE;
+
+      if (complete) {
+         glViewport(0, 0, width, height);
+         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+         System.arraycopy(key.materials, 0, mMaterials, 0, mMaterials.length);
+         final WheelGeometry geometry = useMeshProgram(key.width, key.height, key.orientation);
+
+         for (int i = 0; i < frames; i++) {
+            glViewport((i % columns) * key.width, (i / columns) * key.height, key.width, key.height);
+            drawMesh(geometry, i * RIDGE_PERIOD / frames, key.orientation);
+         }
+      }
+
+      glBindFramebuffer(GL_FRAMEBUFFER, 0);
+      glDeleteRenderbuffers(1, mHandles, 1);
+      glDeleteFramebuffers(1, mHandles, 0);
+
+      if (!complete) {
+         Log.e(LOG_TAG, "Sprite atlas framebuffer incomplete, cached rendering disabled");
+         mHandles[0] = texture;
+         glDeleteTextures(1, mHandles, 0);
+         mAtlasUnsupported = true;
+         return null;
+      }
+
+      final SpriteAtlasCache.Atlas atlas = new SpriteAtlasCache.Atlas();
+      atlas.texture = texture;
+      atlas.frames = frames;
+      atlas.columns = columns;
+      atlas.cellWidth = key.width;
+      atlas.cellHeight = key.height;
+      atlas.width = width;
+      atlas.height = height;
+
+      mAtlasCache.put(key, atlas);
+      return atlas;
+   }
+
+   /*
+    *   Switch to the mesh program and the VBO of the level of detail
+    *   matching the wheel size, the VBO is uploaded on first use.
+    */
+
+   private WheelGeometry useMeshProgram(final int width, final int height, final int orientation)
+   {
+      final WheelGeometry geometry = WheelGeometry.get(WheelGeometry.lodForSize(
+              (orientation == ThumbWheel.Orientation.HORIZONTAL) ? width : height));
+
+      final int lod = geometry.lod;
+
+      if (mVertexBuffers[lod] == 0) {
+         uploadGeometry(geometry);
+         mCurrentBuffer = 0;
+      }
+
+      if (mCurrentProgram != mProgram) {
+         glUseProgram(mProgram);
+         glEnableVertexAttribArray(ATTRIB_NORMAL);
+         glEnableVertexAttribArray(ATTRIB_RING);
+         glEnable(GL_DEPTH_TEST);
+         mCurrentProgram = mProgram;
+         mCurrentBuffer = 0;
+      }
+
+      if (mCurrentBuffer != mVertexBuffers[lod]) {
+         mCurrentBuffer = mVertexBuffers[lod];
+         glBindBuffer(GL_ARRAY_BUFFER, mCurrentBuffer);
+         glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, mIndexBuffers[lod]);
+         if (mQuantized[lod]) {
+            final int stride = WheelGeometry.QUANTIZED_VERTEX_BYTES;
+            final int normalOffset = WheelGeometry.QUANTIZED_NORMAL_OFFSET;
+            glVertexAttribPointer(ATTRIB_POSITION, 3, GL_SHORT, true, stride, 0);
+            glVertexAttribPointer(ATTRIB_NORMAL, 3, GL_BYTE, true, stride, normalOffset);
+            glVertexAttribPointer(ATTRIB_RING, 1, GL_BYTE, true, stride, normalOffset + 3);
+         } else {
+            glVertexAttribPointer(ATTRIB_POSITION, 3, GL_FLOAT, false, FLOATS_PER_VERTEX * 4, 0);
+            glVertexAttribPointer(ATTRIB_NORMAL, 3, GL_FLOAT, false, FLOATS_PER_VERTEX * 4, 3 * 4);
+            glVertexAttribPointer(ATTRIB_RING, 1, GL_FLOAT, false, FLOATS_PER_VERTEX * 4, 6 * 4);
+         }
+         glEnableVertexAttribArray(ATTRIB_POSITION);
+      }
+      return geometry;
+   }
+
+   private void useSpriteProgram()
+   {
+      useQuadProgram(mSpriteProgram);
+   }
+
+   private void useProceduralProgram()
+   {
+      useQuadProgram(mProceduralProgram);
+   }
+
+   /*
+    *   Programs drawing a single quad share its buffer and need no depth test
+    */
+
+   private void useQuadProgram(final int program)
+   {
+      if (mCurrentProgram != program) {
+         glUseProgram(program);
+         if (mCurrentProgram != mSpriteProgram && mCurrentProgram != mProceduralProgram) {
+            glBindBuffer(GL_ARRAY_BUFFER, mQuadBuffer);
+            glDisableVertexAttribArray(ATTRIB_NORMAL);
+            glDisableVertexAttribArray(ATTRIB_RING);
+            glVertexAttribPointer(ATTRIB_POSITION, 2, GL_FLOAT, false, 2 * 4, 0);
+            glEnableVertexAttribArray(ATTRIB_POSITION);
+            glDisable(GL_DEPTH_TEST);
+         }
+         mCurrentProgram = program;
+      }
+   }
+
+   private static int uploadQuad()
+   {
+      final int[] buffers = new int[1];
+      final FloatBuffer data = ByteBuffer.allocateDirect(4 * QUAD.length)
+                                         .order(ByteOrder.nativeOrder()).asFloatBuffer();
+      data.put(QUAD).position(0);
+
+      glGenBuffers(1, buffers, 0);
+      glBindBuffer(GL_ARRAY_BUFFER, buffers[0]);
+      glBufferData(GL_ARRAY_BUFFER, 4 * QUAD.length, data, GL_STATIC_DRAW);
+      return buffers[0];
+   }
+
+   /*
+    *   Copy the shared mesh into a vertex and an index buffer. In float format
+    *   the ring index (1.0 inner, 0.0 outer) is added as 7th component of every
+    *   vertex. The heap copy of the mesh is not needed any more afterwards.
+    */
+
+   private void uploadGeometry(final WheelGeometry geometry)
+   {
+      final int lod = geometry.lod;
+      final boolean quantized = sQuantized;
+      final Buffer data;
+      final int size;
+
+      if (quantized) {
+         data = geometry.createQuantizedBuffer();
+         size = WheelGeometry.QUANTIZED_VERTEX_BYTES * geometry.vertexCount;
+      } else {
+         final float[] vertexNormals = geometry.getVertexNormals();
+         final FloatBuffer floats = ByteBuffer.allocateDirect(4 * FLOATS_PER_VERTEX * geometry.vertexCount)
+                                              .order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+         for (int i = 0; i < geometry.vertexCount; i++) {
+            floats.put(vertexNormals, i * WheelGeometry.FLOATS_PER_VERTEX, WheelGeometry.FLOATS_PER_VERTEX);
+            floats.put(i < geometry.innerVertexCount ? 1.0f : 0.0f);
+         }
+         floats.position(0);
+         data = floats;
+         size = 4 * floats.capacity();
+      }
+
+      final short[] indices = geometry.getIndices();
+      final ShortBuffer indexData = ByteBuffer.allocateDirect(2 * indices.length)
+                                              .order(ByteOrder.nativeOrder()).asShortBuffer();
+      indexData.put(indices).position(0);
+
+      glGenBuffers(2, mHandles, 0);
+      glBindBuffer(GL_ARRAY_BUFFER, mHandles[0]);
+      glBufferData(GL_ARRAY_BUFFER, size, data, GL_STATIC_DRAW);
+      glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, mHandles[1]);
+      glBufferData(GL_ELEMENT_ARRAY_BUFFER, 2 * indices.length, indexData, GL_STATIC_DRAW);
+      geometry.releaseHeapData();
+
+      mVertexBuffers[lod] = mHandles[0];
+      mIndexBuffers[lod] = mHandles[1];
+      mQuantized[lod] = quantized;
+   }
+
+   private static int createProgram(final String vertexSource, final String fragmentSource)
+   {
+      final int[] status = new int[1];
+      final int program = glCreateProgram();
+      final int vertexShader = compileShader(GL_VERTEX_SHADER, vertexSource);
+      final int fragmentShader = compileShader(GL_FRAGMENT_SHADER, fragmentSource);
+
+      glAttachShader(program, vertexShader);
+      glAttachShader(program, fragmentShader);
+      glBindAttribLocation(program, ATTRIB_POSITION, "aPosition");
+      glBindAttribLocation(program, ATTRIB_NORMAL, "aNormal");
+      glBindAttribLocation(program, ATTRIB_RING, "aRing");
+      glLinkProgram(program);
+      glGetProgramiv(program, GL_LINK_STATUS, status, 0);
+      if (status[0] != GL_TRUE) {
+         Log.e(LOG_TAG, "Program link failed: " + glGetProgramInfoLog(program));
+      }
+
+      // Shaders are kept alive by the program
+      glDeleteShader(vertexShader);
+      glDeleteShader(fragmentShader);
+      return program;
+   }
+
+   private static int compileShader(final int type, final String source)
+   {
+      final int[] status = new int[1];
+      final int shader = glCreateShader(type);
+
+      glShaderSource(shader, source);
+      glCompileShader(shader);
+      glGetShaderiv(shader, GL_COMPILE_STATUS, status, 0);
+      if (status[0] != GL_TRUE) {
+         Log.e(LOG_TAG, "Shader compile failed: " + glGetShaderInfoLog(shader));
+      }
+      return shader;
+   }
+}
@@ -0,0 +1,617 @@
+package kc87.thumbwheel;
+
+import java.lang.Thread;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+import android.graphics.SurfaceTexture;
+
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+
+import static android.opengl.EGL14.*;
+import static android.opengl.EGLExt.EGL_OPENGL_ES3_BIT_KHR;
+
+/*
+ *   Process wide render engine shared by all wheel instances.
+ *   One thread owns one EGL context, every attached SurfaceTexture
+ *   becomes a separate EGL window surface of that context.
+ *   The thread is started with the first and stopped with the last target.
+ *   While no target is active the thread is parked until requestRender(),
+ *   active targets are stepped once per display vsync. Input and motion ask
+ *   for the next vsync (requestFrame()), other wake-ups only sync surfaces,
+ *   so wheels are stepped and drawn on vsync time stamps only.
+ *
+ *   With a surface pool (opt-in, see setSurfacePoolSize()) detached targets
+ *   keep their SurfaceTexture and EGL surface, and the thread and context
+ *   outlive the last target. A view coming back re-binds its old
+ *   SurfaceTexture (resume()) and draws right away, with no thread start,
+ *   display init, config choice, context or surface creation. The pool is
+ *   bounded, the least recently detached target is released first, and
+ *   trimMemory() gives everything back under memory pressure.
+ *
+ *   Idle targets can be suspended (see ThumbWheel.setIdleTimeout()), they
+ *   give up their EGL surface but stay with their view and SurfaceTexture.
+ */
+
+final class GLRenderEngine
+{
+   private static final String LOG_TAG = "GLRenderEngine";
+
+   private static final int MAX_FRAME_SKIP = 4;
+
+   private static final GLRenderEngine sInstance = new GLRenderEngine();
+
+   private static final Target[] NO_TARGETS = new Target[0];
+
+   private final Object mLock = new Object();
+   private final AtomicBoolean mRenderRequested = new AtomicBoolean();
+   private final FramePacer mPacer = new FramePacer(this);
+   private final ArrayList<SurfaceTexture> mReleaseTextures = new ArrayList<SurfaceTexture>();
+   private final ArrayList<EGLSurface> mReleaseSurfaces = new ArrayList<EGLSurface>();
+   // Detached targets keeping their surfaces, least recently detached first
+   private final ArrayList<Target> mParkedTargets = new ArrayList<Target>();
+   private volatile Target[] mTargets = NO_TARGETS;
+   private volatile RenderThread mThread;
+   private int mPoolSize = 0;
+   // Set by trimMemory(), handled by the render thread
+   private boolean mTrimCaches = false;
+   private boolean mStopWhenIdle = false;
+   private volatile SurfaceConfig mSurfaceConfig = SurfaceConfig.DEFAULT;
+
+   /*
+    *   A render target, i.e. one SurfaceTexture attached to the engine.
+    *   update() and draw() are always called on the render thread.
+    */
+
+   static abstract class Target
+   {
+      private SurfaceTexture mmSurfaceTexture;
+      private volatile EGLSurface mmSurface = EGL_NO_SURFACE;
+      private volatile boolean mmInvalid = false;
+      volatile int mmWidth = 0;
+      volatile int mmHeight = 0;
+      // Render thread only, oldest input not on screen yet (metrics)
+      private long mmTouchNanos = 0;
+
+      /*
+       *   Advance the target to the given frame time, deltaNanos is the
+       *   time elapsed since the previous frame.
+       *   Returns true if the target has to be redrawn.
+       */
+      abstract boolean update(final long frameTimeNanos, final long deltaNanos);
+
+      /*
+       *   Returns true as long as the target needs
+       *   further frames without any new input.
+       */
+      abstract boolean isActive();
+
+      abstract void draw(final WheelRenderer renderer, final int width, final int height);
+
+      void invalidate()
+      {
+         mmInvalid = true;
+         sInstance.requestRender();
+      }
+
+      /*
+       *   Render thread, input with the given time stamp affects the next frame
+       */
+      void touched(final long timeNanos)
+      {
+         if (mmTouchNanos == 0 || timeNanos < mmTouchNanos) {
+            mmTouchNanos = timeNanos;
+         }
+      }
+   }
+
+   static GLRenderEngine getInstance()
+   {
+      return sInstance;
+   }
+
+   private GLRenderEngine()
+   {
+   }
+
+   /*
+    *   Wake up the render thread, safe to call from any thread.
+    *   Requests arriving while a frame is in progress are not lost.
+    */
+
+   void requestRender()
+   {
+      mRenderRequested.set(true);
+      LockSupport.unpark(mThread);
+   }
+
+   /*
+    *   Step and draw at the next display vsync, safe to call from any thread
+    */
+
+   void requestFrame()
+   {
+      mPacer.requestFrame();
+   }
+
+   void attach(final Target target, final SurfaceTexture surfaceTexture, final int width, final int height)
+   {
+      synchronized (mLock) {
+         // A parked target getting a new SurfaceTexture gives up the old one
+         if (mParkedTargets.remove(target)) {
+            release(target);
+         }
+         mStopWhenIdle = false;
+         target.mmSurfaceTexture = surfaceTexture;
+         target.mmSurface = EGL_NO_SURFACE;
+         target.mmWidth = width;
+         target.mmHeight = height;
+         target.mmInvalid = true;
+
+         final Target[] targets = new Target[mTargets.length + 1];
+         System.arraycopy(mTargets, 0, targets, 0, mTargets.length);
+         targets[mTargets.length] = target;
+         mTargets = targets;
+
+         if (mThread == null) {
+            mThread = new RenderThread();
+            mThread.start();
+         }
+      }
+      requestRender();
+   }
+
+   /*
+    *   The SurfaceTexture of a detached target is released by the
+    *   render thread after its EGL surface has been destroyed.
+    */
+
+   void detach(final Target target)
+   {
+      synchronized (mLock) {
+         if (!remove(target)) {
+            // A suspended target still owns its SurfaceTexture
+            if (target.mmSurfaceTexture != null) {
+               releaseSuspended(target);
+            }
+         } else if (mPoolSize > 0 && target.mmSurfaceTexture != null) {
+            mParkedTargets.add(target);
+            trimPool(mPoolSize);
+         } else {
+            release(target);
+         }
+      }
+      requestRender();
+   }
+
+   /*
+    *   Take an idle target off the engine but leave its SurfaceTexture to
+    *   the view: the EGL surface is destroyed, which frees the buffers the
+    *   producer side held, while the view keeps showing the last frame it
+    *   consumed. With the last target suspended or detached the thread and
+    *   context stop as well (unless kept for the surface pool).
+    *   attach() with the same SurfaceTexture brings it back. Returns false
+    *   if the target still has a frame to draw and was left attached.
+    */
+
+   boolean suspend(final Target target)
+   {
+      synchronized (mLock) {
+         if (target.mmInvalid || !remove(target)) {
+            return false;
+         }
+         mReleaseSurfaces.add(target.mmSurface);
+         mReleaseTextures.add(null);
+         target.mmSurface = EGL_NO_SURFACE;
+      }
+      requestRender();
+      return true;
+   }
+
+   /*
+    *   Re-attach a target detached into the surface pool. Returns its
+    *   SurfaceTexture, to be handed back to the TextureView, or null if
+    *   the target is not in the pool (any more) and needs a new one.
+    */
+
+   SurfaceTexture resume(final Target target)
+   {
+      synchronized (mLock) {
+         if (!mParkedTargets.remove(target)) {
+            return null;
+         }
+
+         final Target[] targets = new Target[mTargets.length + 1];
+         System.arraycopy(mTargets, 0, targets, 0, mTargets.length);
+         targets[mTargets.length] = target;
+         mTargets = targets;
+         mStopWhenIdle = false;
+         target.mmInvalid = true;
+      }
+      requestRender();
+      return target.mmSurfaceTexture;
+   }
+
+   /*
+    *   Number of detached targets keeping their surfaces, 0 (default)
+    *   releases everything on detach and stops the thread with the last target.
+    */
+
+   void setSurfacePoolSize(final int size)
+   {
+      synchronized (mLock) {
+         mPoolSize = Math.max(size, 0);
+         trimPool(mPoolSize);
+      }
+      requestRender();
+   }
+
+   /*
+    *   Pixel format of all surfaces, used from the next start of the render
+    *   thread on. The running context and its surfaces keep their format.
+    */
+
+   void setSurfaceConfig(final SurfaceConfig config)
+   {
+      mSurfaceConfig = config;
+   }
+
+   SurfaceConfig getSurfaceConfig()
+   {
+      return mSurfaceConfig;
+   }
+
+   /*
+    *   Release resources according to a ComponentCallbacks2 trim level:
+    *   the surface pool and sprite atlases when memory runs low or the UI
+    *   is hidden, additionally the thread and context in the background
+    *   if no target is attached.
+    */
+
+   void trimMemory(final int level)
+   {
+      if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+         return;
+      }
+
+      synchronized (mLock) {
+         trimPool(0);
+         mTrimCaches = true;
+         if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            mStopWhenIdle = true;
+         }
+      }
+      requestRender();
+   }
+
+   /*
+    *   Lock must be held, returns false if the target was not attached
+    */
+
+   private boolean remove(final Target target)
+   {
+      int index = -1;
+      for (int i = 0; i < mTargets.length; i++) {
+         if (mTargets[i] == target) {
+            index = i;
+            break;
+         }
+      }
+
+      if (index < 0) {
+         return false;
+      }
+
+      final Target[] targets = new Target[mTargets.length - 1];
+      System.arraycopy(mTargets, 0, targets, 0, index);
+      System.arraycopy(mTargets, index + 1, targets, index, targets.length - index);
+      mTargets = targets;
+      return true;
+   }
+
+   /*
+    *   Lock must be held. Without a render thread the EGL surface of the
+    *   suspended target is gone already and the SurfaceTexture can go as well.
+    */
+
+   private void releaseSuspended(final Target target)
+   {
+      if (mThread == null) {
+         target.mmSurfaceTexture.release();
+         target.mmSurfaceTexture = null;
+      } else {
+         release(target);
+      }
+   }
+
+   /*
+    *   Lock must be held
+    */
+
+   private void trimPool(final int size)
+   {
+      while (mParkedTargets.size() > size) {
+         release(mParkedTargets.remove(0));
+      }
+   }
+
+   private void release(final Target target)
+   {
+      mReleaseSurfaces.add(target.mmSurface);
+      mReleaseTextures.add(target.mmSurfaceTexture);
+      target.mmSurface = EGL_NO_SURFACE;
+      target.mmSurfaceTexture = null;
+   }
+
+   private class RenderThread extends Thread
+   {
+      private EGLDisplay mmDisplay = EGL_NO_DISPLAY;
+      private EGLContext mmContext = EGL_NO_CONTEXT;
+      private EGLConfig mmConfig;
+      private EGLSurface mmPbuffer = EGL_NO_SURFACE;
+      private WheelRenderer mmRenderer;
+      private final int[] mmSurfaceAttrs = {
+              EGL_NONE
+      };
+
+      RenderThread()
+      {
+         super(LOG_TAG);
+      }
+
+      /*
+       *   Create the context with the highest GLES version available,
+       *   the wheel renderer backend follows the context version.
+       *   A surface config no GLES version has an EGL config for falls back
+       *   to the default one. Returns false if there is no context at all.
+       */
+
+      private boolean initEGL()
+      {
+         final SurfaceConfig[] surfaceConfigs = {mSurfaceConfig, SurfaceConfig.DEFAULT};
+         final int[] version = new int[2];
+         final int[] glesVersions = {3, 2, 1};
+         final int[] renderableTypes = {EGL_OPENGL_ES3_BIT_KHR, EGL_OPENGL_ES2_BIT, EGL_OPENGL_ES_BIT};
+
+         final int[] pbufferAttrs = {
+                 EGL_WIDTH, 1,
+                 EGL_HEIGHT, 1,
+                 EGL_NONE
+         };
+
+         // Get an EGL display connection
+         mmDisplay = eglGetDisplay(EGL_DEFAULT_DISPLAY);
+         // Initialize the EGL display connection
+         eglInitialize(mmDisplay, version, 0, version, 1);
+
+         for (int c = 0; c < surfaceConfigs.length && mmContext == EGL_NO_CONTEXT; c++) {
+            final SurfaceConfig surfaceConfig = surfaceConfigs[c];
+
+            if (c > 0) {
+               if (surfaceConfig == surfaceConfigs[0]) {
+                  break;
+               }
+               Log.w(LOG_TAG, "No EGL config for " + surfaceConfigs[0] + " surfaces, trying " + surfaceConfig);
+            }
+
+            for (int i = 0; i < glesVersions.length && mmContext == EGL_NO_CONTEXT; i++) {
+               final int[] attr_list = {
+                       EGL_CONTEXT_CLIENT_VERSION, glesVersions[i],
+                       EGL_NONE
+               };
+
+               // Get the cheapest EGL frame buffer configuration matching the surface config
+               final EGLConfig config = surfaceConfig.choose(mmDisplay, renderableTypes[i]);
+               if (config == null) {
+                  continue;
+               }
+               // Create the one EGL rendering context shared by all targets
+               mmContext = eglCreateContext(mmDisplay, config, EGL_NO_CONTEXT, attr_list, 0);
+               if (mmContext != EGL_NO_CONTEXT) {
+                  Log.d(LOG_TAG, "Using GLES " + glesVersions[i] + " context, " + surfaceConfig + " surfaces");
+                  mmConfig = config;
+                  mmRenderer = (glesVersions[i] >= 2) ? new GLES20WheelRenderer() : new GLES10WheelRenderer();
+               }
+            }
+         }
+
+         if (mmContext == EGL_NO_CONTEXT) {
+            Log.e(LOG_TAG, "No EGL config or context for any GLES version, wheels are not drawn");
+            return false;
+         }
+
+         // Bind the context to a dummy surface until the first target shows up
+         mmPbuffer = eglCreatePbufferSurface(mmDisplay, mmConfig, pbufferAttrs, 0);
+         eglMakeCurrent(mmDisplay, mmPbuffer, mmPbuffer, mmContext);
+         return true;
+      }
+
+      /*
+       *   Without a context the thread ends right away. The SurfaceTextures
+       *   waiting for release go, the targets stay attached without a surface
+       *   and the next attach() tries again with a new thread.
+       */
+
+      private void abandon()
+      {
+         synchronized (mLock) {
+            for (SurfaceTexture texture : mReleaseTextures) {
+               if (texture != null) {
+                  texture.release();
+               }
+            }
+            mReleaseSurfaces.clear();
+            mReleaseTextures.clear();
+            mThread = null;
+         }
+      }
+
+      /*
+       *   Destroy EGL surfaces of detached targets, create surfaces for
+       *   newly attached ones. Returns false if there is nothing left to render.
+       */
+
+      private boolean syncTargets()
+      {
+         synchronized (mLock) {
+            // Kept running for the pool, unless trimmed in the background
+            final boolean stop = mTargets.length == 0 && (mPoolSize == 0 || mStopWhenIdle);
+            if (stop) {
+               trimPool(0);
+            }
+
+            for (int i = 0; i < mReleaseSurfaces.size(); i++) {
+               final EGLSurface surface = mReleaseSurfaces.get(i);
+               if (surface != EGL_NO_SURFACE) {
+                  eglMakeCurrent(mmDisplay, mmPbuffer, mmPbuffer, mmContext);
+                  eglDestroySurface(mmDisplay, surface);
+               }
+               final SurfaceTexture texture = mReleaseTextures.get(i);
+               if (texture != null) {
+                  texture.release();
+               }
+            }
+            mReleaseSurfaces.clear();
+            mReleaseTextures.clear();
+
+            if (mTrimCaches) {
+               mTrimCaches = false;
+               mmRenderer.trimMemory();
+            }
+
+            final Target[] targets = mTargets;
+
+            for (Target target : targets) {
+               if (target.mmSurface == EGL_NO_SURFACE) {
+                  target.mmSurface = eglCreateWindowSurface(mmDisplay, mmConfig, target.mmSurfaceTexture, mmSurfaceAttrs, 0);
+                  target.mmInvalid = true;
+               }
+            }
+
+            if (stop) {
+               mThread = null;
+               return false;
+            }
+         }
+         return true;
+      }
+
+      private void swapBuffersMeasured(final Target target, final EGLSurface surface)
+      {
+         final long start = System.nanoTime();
+         eglSwapBuffers(mmDisplay, surface);
+         final long end = System.nanoTime();
+
+         WheelMetrics.record(WheelMetrics.SWAP_TIME, end - start);
+         WheelMetrics.countDrawnFrame();
+         if (target.mmTouchNanos != 0) {
+            WheelMetrics.record(WheelMetrics.TOUCH_LATENCY, end - target.mmTouchNanos);
+         }
+      }
+
+      /*
+       *   Block until vsync or a surface event arrives. The request is taken
+       *   before the next syncTargets(), so one arriving during that pass
+       *   gets a pass of its own.
+       */
+
+      private void awaitRequest()
+      {
+         while (!mRenderRequested.getAndSet(false)) {
+            LockSupport.park(this);
+         }
+      }
+
+      @Override
+      public void run()
+      {
+         if (!initEGL()) {
+            abandon();
+            return;
+         }
+         mmRenderer.init();
+
+         /*
+          *    Render loop, only targets that changed are redrawn
+          */
+         boolean stepping = false;
+         long lastFrameTime = 0;
+
+         while (syncTargets()) {
+            final Target[] targets = mTargets;
+            final long frameTime = mPacer.consumeFrame();
+
+            if (frameTime < 0) {
+               // No vsync, woken for surface changes only: wait for the next one to draw
+               for (Target target : targets) {
+                  if (target.mmInvalid || target.isActive()) {
+                     mPacer.requestFrame();
+                     break;
+                  }
+               }
+               awaitRequest();
+               continue;
+            }
+
+            final long frameInterval = mPacer.getFrameIntervalNanos();
+
+            // Coming out of idle the last frame time is meaningless
+            long delta = stepping ? frameTime - lastFrameTime : frameInterval;
+            if (delta <= 0 || delta > MAX_FRAME_SKIP * frameInterval) {
+               delta = frameInterval;
+            }
+            lastFrameTime = frameTime;
+            boolean active = false;
+
+            final boolean metrics = WheelMetrics.isEnabled();
+            final long workStart = metrics ? System.nanoTime() : 0;
+            boolean drawn = false;
+
+            for (Target target : targets) {
+               final EGLSurface surface = target.mmSurface;
+               final boolean invalid = target.mmInvalid;
+               target.mmInvalid = false;
+
+               if (target.update(frameTime, delta) || invalid) {
+                  if (surface != EGL_NO_SURFACE && eglMakeCurrent(mmDisplay, surface, surface, mmContext)) {
+                     target.draw(mmRenderer, target.mmWidth, target.mmHeight);
+                     if (metrics) {
+                        swapBuffersMeasured(target, surface);
+                     } else {
+                        eglSwapBuffers(mmDisplay, surface);
+                     }
+                     target.mmTouchNanos = 0;
+                     drawn = true;
+                  }
+               }
+               active |= target.isActive();
+            }
+
+            if (metrics && drawn) {
+               WheelMetrics.record(WheelMetrics.FRAME_TIME, System.nanoTime() - workStart);
+            }
+
+            stepping = active;
+            if (active) {
+               // Continue with the next vsync
+               mPacer.requestFrame();
+            }
+
+            awaitRequest();
+         }
+
+         Log.d(LOG_TAG, "No targets left, shutting down");
+         eglMakeCurrent(mmDisplay, EGL_NO_SURFACE, EGL_NO_SURFACE, EGL_NO_CONTEXT);
+         eglDestroySurface(mmDisplay, mmPbuffer);
+         eglDestroyContext(mmDisplay, mmContext);
+         mmPbuffer = EGL_NO_SURFACE;
+         mmContext = EGL_NO_CONTEXT;
+      }
+   }
+}
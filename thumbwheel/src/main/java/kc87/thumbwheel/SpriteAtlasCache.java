@@ -0,0 +1,149 @@
+package kc87.thumbwheel;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static android.opengl.GLES20.glDeleteTextures;
+
+/*
+ *   LRU cache of pre-rendered wheel frames.
+ *   An atlas holds one ridge period of rotation steps for one
+ *   (size, orientation, material) combination and is shared by all
+ *   wheels looking the same. The total texture memory is bounded,
+ *   least recently used atlases are deleted first.
+ *   Render thread only, except for the budget.
+ */
+
+final class SpriteAtlasCache
+{
+   static final int DEFAULT_BUDGET_BYTES = 8 * 1024 * 1024;
+
+   private static volatile int sBudgetBytes = DEFAULT_BUDGET_BYTES;
+
+   private final LinkedHashMap<Key, Atlas> mAtlases = new LinkedHashMap<Key, Atlas>(16, 0.75f, true);
+   private final int[] mTextures = new int[1];
+   private long mUsedBytes = 0;
+
+   static final class Atlas
+   {
+      int texture;
+      int width;
+      int height;
+      int cellWidth;
+      int cellHeight;
+      int columns;
+      int frames;
+
+      int getByteCount()
+      {
+         return 4 * width * height;
+      }
+   }
+
+   /*
+    *   Mutable, so lookups can reuse one instance.
+    *   Only copies are stored in the cache.
+    */
+
+   static final class Key
+   {
+      int width;
+      int height;
+      int orientation;
+      final float[] materials = new float[16];
+
+      void set(final int width, final int height, final int orientation,
+               final float[] matDiffuseOuter, final float[] matSpecularOuter,
+               final float[] matDiffuseInner, final float[] matSpecularInner)
+      {
+         this.width = width;
+         this.height = height;
+         this.orientation = orientation;
+         System.arraycopy(matDiffuseOuter, 0, materials, 0, 4);
+         System.arraycopy(matSpecularOuter, 0, materials, 4, 4);
+         System.arraycopy(matDiffuseInner, 0, materials, 8, 4);
+         System.arraycopy(matSpecularInner, 0, materials, 12, 4);
+      }
+
+      Key copy()
+      {
+         final Key key = new Key();
+         key.width = width;
+         key.height = height;
+         key.orientation = orientation;
+         System.arraycopy(materials, 0, key.materials, 0, materials.length);
+         return key;
+      }
+
+      @Override
+      public boolean equals(final Object o)
+      {
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         final Key key = (Key) o;
+         return width == key.width && height == key.height && orientation == key.orientation &&
+                Arrays.equals(materials, key.materials);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return 31 * (31 * (31 * width + height) + orientation) + Arrays.hashCode(materials);
+      }
+   }
+
+   /*
+    *   Upper bound for the texture memory of all atlases, takes effect
+    *   with the next insertion.
+    */
+
+   static void setBudget(final int bytes)
+   {
+      sBudgetBytes = Math.max(bytes, 0);
+   }
+
+   static int getBudget()
+   {
+      return sBudgetBytes;
+   }
+
+   Atlas get(final Key key)
+   {
+      return mAtlases.get(key);
+   }
+
+   void put(final Key key, final Atlas atlas)
+   {
+      mAtlases.put(key.copy(), atlas);
+      mUsedBytes += atlas.getByteCount();
+
+      final Iterator<Map.Entry<Key, Atlas>> iterator = mAtlases.entrySet().iterator();
+      while (mUsedBytes > sBudgetBytes && iterator.hasNext()) {
+         final Atlas eldest = iterator.next().getValue();
+         if (eldest == atlas) {
+            break;
+         }
+         iterator.remove();
+         release(eldest);
+      }
+   }
+
+   void clear()
+   {
+      for (Atlas atlas : mAtlases.values()) {
+         release(atlas);
+      }
+      mAtlases.clear();
+   }
+
+   private void release(final Atlas atlas)
+   {
+      mTextures[0] = atlas.texture;
+      glDeleteTextures(1, mTextures, 0);
+      mUsedBytes -= atlas.getByteCount();
+      atlas.texture = 0;
+   }
+}
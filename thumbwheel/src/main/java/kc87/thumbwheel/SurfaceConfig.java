@@ -0,0 +1,126 @@
+package kc87.thumbwheel;
+
+import android.opengl.EGLConfig;
+import android.opengl.EGLDisplay;
+
+import static android.opengl.EGL14.*;
+
+/*
+ *   Pixel format of the EGL surfaces the wheels are drawn into. There is
+ *   one for the whole process, all surfaces have to fit the one context.
+ *
+ *   eglChooseConfig() treats the sizes as minimums and sorts the deepest
+ *   color first, so instead of taking its first config every candidate is
+ *   scored by the bits it has beyond the request (more memory per pixel)
+ *   and the cheapest one wins. Without a depth buffer the depth test always
+ *   passes, the mesh then relies on back face culling and its draw order;
+ *   cached and procedural rendering never use it on the surface anyway.
+ */
+
+public final class SurfaceConfig
+{
+   public static final int FORMAT_RGBA_8888 = 0;
+   public static final int FORMAT_RGB_565 = 1;
+
+   // What the wheels always used: 32 bit color and a 16 bit depth buffer
+   public static final SurfaceConfig DEFAULT = new SurfaceConfig(FORMAT_RGBA_8888, true, 0);
+   // 2 instead of 6 bytes per pixel, for low memory devices
+   public static final SurfaceConfig LOW_MEMORY = new SurfaceConfig(FORMAT_RGB_565, false, 0);
+
+   private static final int MAX_CONFIGS = 64;
+   private static final int DEPTH_SIZE = 16;
+   // Never take a config with a caveat if there is any other
+   private static final int SLOW_CONFIG_PENALTY = 1000;
+
+   public final int format;
+   public final boolean depthBuffer;
+   // Samples per pixel for multisampling, 0 disables it
+   public final int samples;
+
+   public SurfaceConfig(final int format, final boolean depthBuffer, final int samples)
+   {
+      this.format = (format == FORMAT_RGB_565) ? FORMAT_RGB_565 : FORMAT_RGBA_8888;
+      this.depthBuffer = depthBuffer;
+      this.samples = (samples > 1) ? samples : 0;
+   }
+
+   /*
+    *   Best config for the given EGL_RENDERABLE_TYPE, null if there is none.
+    *   Multisampling is dropped if no config supports it.
+    */
+
+   EGLConfig choose(final EGLDisplay display, final int renderableType)
+   {
+      EGLConfig config = choose(display, renderableType, samples);
+      if (config == null && samples > 0) {
+         config = choose(display, renderableType, 0);
+      }
+      return config;
+   }
+
+   private EGLConfig choose(final EGLDisplay display, final int renderableType, final int samples)
+   {
+      final boolean rgb565 = (format == FORMAT_RGB_565);
+      final EGLConfig[] configs = new EGLConfig[MAX_CONFIGS];
+      final int[] numConfigs = new int[1];
+      final int[] value = new int[1];
+
+      final int[] configAttrs = {
+              EGL_RED_SIZE, rgb565 ? 5 : 8,
+              EGL_GREEN_SIZE, rgb565 ? 6 : 8,
+              EGL_BLUE_SIZE, rgb565 ? 5 : 8,
+              EGL_ALPHA_SIZE, rgb565 ? 0 : 8,
+              EGL_DEPTH_SIZE, depthBuffer ? DEPTH_SIZE : 0,
+              EGL_SAMPLE_BUFFERS, (samples > 0) ? 1 : 0,
+              EGL_SAMPLES, samples,
+              EGL_SURFACE_TYPE, EGL_WINDOW_BIT | EGL_PBUFFER_BIT,
+              EGL_RENDERABLE_TYPE, renderableType,
+              EGL_NONE
+      };
+
+      if (!eglChooseConfig(display, configAttrs, 0, configs, 0, configs.length, numConfigs, 0)) {
+         return null;
+      }
+
+      EGLConfig best = null;
+      int bestScore = Integer.MAX_VALUE;
+
+      for (int i = 0; i < numConfigs[0]; i++) {
+         // Extra bits per pixel, times the samples they are stored for
+         int score = attrib(display, configs[i], EGL_RED_SIZE, value) - configAttrs[1] +
+                     attrib(display, configs[i], EGL_GREEN_SIZE, value) - configAttrs[3] +
+                     attrib(display, configs[i], EGL_BLUE_SIZE, value) - configAttrs[5] +
+                     attrib(display, configs[i], EGL_ALPHA_SIZE, value) - configAttrs[7] +
+                     attrib(display, configs[i], EGL_DEPTH_SIZE, value) - configAttrs[9] +
+                     attrib(display, configs[i], EGL_STENCIL_SIZE, value);
+         score *= Math.max(attrib(display, configs[i], EGL_SAMPLES, value), 1);
+         score += Math.abs(attrib(display, configs[i], EGL_SAMPLES, value) - samples);
+
+         if (attrib(display, configs[i], EGL_CONFIG_CAVEAT, value) == EGL_SLOW_CONFIG) {
+            score += SLOW_CONFIG_PENALTY;
+         }
+
+         if (score < bestScore) {
+            bestScore = score;
+            best = configs[i];
+         }
+      }
+      return best;
+   }
+
+   private static int attrib(final EGLDisplay display, final EGLConfig config, final int attribute,
+                             final int[] value)
+   {
+      value[0] = 0;
+      eglGetConfigAttrib(display, config, attribute, value, 0);
+      return value[0];
+   }
+
+   @Override
+   public String toString()
+   {
+      return ((format == FORMAT_RGB_565) ? "RGB565" : "RGBA8888") +
+             (depthBuffer ? " depth" : " no depth") +
+             ((samples > 0) ? " " + samples + "x MSAA" : "");
+   }
+}
@@ -0,0 +1,752 @@
+package kc87.thumbwheel;
+
+import java.lang.Math;
+
+import android.animation.TimeInterpolator;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+import android.view.TextureView;
+import android.view.TextureView.SurfaceTextureListener;
+import android.view.MotionEvent;
+import android.graphics.SurfaceTexture;
+
+import android.content.Context;
+
+public class ThumbWheel extends TextureView implements SurfaceTextureListener
+{
+   private static final String LOG_TAG = "ThumbWheel";
+   private static final int DEFAULT_WHEEL_DIAMETER = 100;
+   private static final float WHEEL_THICKNESS_RATIO = 0.25f;
+
+   // Default values for custom xml attributes
+   private static final float DEFAULT_MIN_VALUE = 0.0f;
+   private static final float DEFAULT_MAX_VALUE = 100.0f;
+   private static final float DEFAULT_RATIO = 1.0f;
+   private static final int DEFAULT_ORIENTATION = Orientation.HORIZONTAL;
+   private static final int DEFAULT_BOUNDARY_MODE = BoundaryMode.REPEAT;
+   private static final boolean DEFAULT_VELOCITY_ESTIMATION = true;
+   private static final int DEFAULT_TOUCH_PREDICTION = 0;
+   private static final boolean DEFAULT_CACHED_RENDERING = false;
+   private static final float DEFAULT_VALUE_STEP = 0.0f;
+   private static final int DEFAULT_DISPATCH_RATE = ValueDispatcher.DEFAULT_MAX_RATE;
+   private static final int DEFAULT_VALUE_MAPPING = ValueMapping.LINEAR;
+   private static final float DEFAULT_MAPPING_SHAPE = 0.0f;
+   private static final float DEFAULT_ACCELERATION = 0.0f;
+   private static final boolean DEFAULT_PROCEDURAL_RENDERING = false;
+   private static final int DEFAULT_RIDGE_COUNT = WheelGeometry.SEGMENTS;
+   private static final float DEFAULT_RIDGE_THICKNESS = WheelGeometry.RIDGE_THICKNESS;
+   private static final int DEFAULT_IDLE_TIMEOUT = 0;
+
+
+   public class Orientation
+   {
+      public static final int HORIZONTAL = 0;
+      public static final int VERTICAL = 1;
+   }
+
+   public class BoundaryMode
+   {
+      public static final int REPEAT = 0;
+      public static final int CLAMP = 1;
+   }
+
+   private final WheelTarget mTarget = new WheelTarget();
+   private final WheelController mController;
+   private float mDensity = 1.0f;
+   // Idle timeout in ms and whether the GL surface is given up, see setIdleTimeout()
+   private int mIdleTimeout = DEFAULT_IDLE_TIMEOUT;
+   private volatile boolean mSuspended = false;
+
+   private final Runnable mSuspendRunnable = new Runnable()
+   {
+      @Override
+      public void run()
+      {
+         suspend();
+      }
+   };
+
+   private final Runnable mResumeRunnable = new Runnable()
+   {
+      @Override
+      public void run()
+      {
+         resume();
+      }
+   };
+
+   private final Runnable mSettleCallback = new Runnable()
+   {
+      @Override
+      public void run()
+      {
+         scheduleSuspend();
+      }
+   };
+
+
+   public ThumbWheel(final Context context)
+   {
+      this(context, null);
+   }
+
+   public ThumbWheel(final Context context, AttributeSet attrs)
+   {
+      super(context, attrs);
+      mDensity = getResources().getDisplayMetrics().density;
+
+      WheelConfig config = defaultConfig(DEFAULT_ORIENTATION);
+      float valueStep = DEFAULT_VALUE_STEP;
+      int dispatchRate = DEFAULT_DISPATCH_RATE;
+      int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+      if(attrs != null)
+      {
+         TypedArray typedArray = context.getTheme().obtainStyledAttributes(attrs,R.styleable.ThumbWheel,0,0);
+         config = new WheelConfig(typedArray.getFloat(R.styleable.ThumbWheel_minValue,DEFAULT_MIN_VALUE),
+                                  typedArray.getFloat(R.styleable.ThumbWheel_maxValue,DEFAULT_MAX_VALUE),
+                                  DEFAULT_RATIO,
+                                  typedArray.getInt(R.styleable.ThumbWheel_orientation,DEFAULT_ORIENTATION),
+                                  typedArray.getInt(R.styleable.ThumbWheel_boundaryMode,DEFAULT_BOUNDARY_MODE),
+                                  typedArray.getBoolean(R.styleable.ThumbWheel_velocityEstimation,DEFAULT_VELOCITY_ESTIMATION),
+                                  typedArray.getInt(R.styleable.ThumbWheel_touchPrediction,DEFAULT_TOUCH_PREDICTION),
+                                  typedArray.getBoolean(R.styleable.ThumbWheel_cachedRendering,DEFAULT_CACHED_RENDERING),
+                                  ValueMapping.fromType(typedArray.getInt(R.styleable.ThumbWheel_valueMapping,DEFAULT_VALUE_MAPPING),
+                                                        typedArray.getFloat(R.styleable.ThumbWheel_mappingShape,DEFAULT_MAPPING_SHAPE)),
+                                  typedArray.getFloat(R.styleable.ThumbWheel_acceleration,DEFAULT_ACCELERATION),
+                                  typedArray.getBoolean(R.styleable.ThumbWheel_proceduralRendering,DEFAULT_PROCEDURAL_RENDERING),
+                                  Math.max(typedArray.getInt(R.styleable.ThumbWheel_ridgeCount,DEFAULT_RIDGE_COUNT), 1),
+                                  Math.min(Math.max(typedArray.getFloat(R.styleable.ThumbWheel_ridgeThickness,DEFAULT_RIDGE_THICKNESS),
+                                                    WheelConfig.MIN_RIDGE_THICKNESS), WheelConfig.MAX_RIDGE_THICKNESS));
+         valueStep = typedArray.getFloat(R.styleable.ThumbWheel_valueStep,DEFAULT_VALUE_STEP);
+         dispatchRate = typedArray.getInt(R.styleable.ThumbWheel_dispatchRate,DEFAULT_DISPATCH_RATE);
+         idleTimeout = typedArray.getInt(R.styleable.ThumbWheel_idleTimeout,DEFAULT_IDLE_TIMEOUT);
+
+         // Process wide, the surfaces of all wheels share one format
+         final SurfaceConfig surfaceConfig = getSurfaceConfig();
+         setSurfaceConfig(new SurfaceConfig(typedArray.getInt(R.styleable.ThumbWheel_surfaceFormat,surfaceConfig.format),
+                                            typedArray.getBoolean(R.styleable.ThumbWheel_depthBuffer,surfaceConfig.depthBuffer),
+                                            typedArray.getInt(R.styleable.ThumbWheel_multisampling,surfaceConfig.samples)));
+      }
+
+      mController = new WheelController(this, mTarget, config);
+      mController.getDispatcher().setStep(valueStep);
+      mController.getDispatcher().setMaxRate(dispatchRate);
+      mController.getDispatcher().setSettleCallback(mSettleCallback);
+      mIdleTimeout = Math.max(idleTimeout, 0);
+
+      setSurfaceTextureListener(this);
+   }
+
+   /*
+    *   Settings of a wheel created without XML attributes
+    */
+
+   static WheelConfig defaultConfig(final int orientation)
+   {
+      return new WheelConfig(DEFAULT_MIN_VALUE, DEFAULT_MAX_VALUE, DEFAULT_RATIO, orientation,
+                             DEFAULT_BOUNDARY_MODE, DEFAULT_VELOCITY_ESTIMATION,
+                             DEFAULT_TOUCH_PREDICTION, DEFAULT_CACHED_RENDERING,
+                             ValueMapping.linear(), DEFAULT_ACCELERATION,
+                             DEFAULT_PROCEDURAL_RENDERING, DEFAULT_RIDGE_COUNT, DEFAULT_RIDGE_THICKNESS);
+   }
+
+   /*
+    *   Mapped and scaled by the ratio, the units of setValue() and the listeners
+    */
+
+   public float getValue()
+   {
+      return mController.getValue();
+   }
+
+   /*
+    *   Move the wheel to the given value with the next frame
+    */
+
+   public void setValue(final float value)
+   {
+      animateTo(value, 0, null);
+   }
+
+   /*
+    *   Turn the wheel to the given value within durationMillis, a null
+    *   interpolator is linear. Calls in quick succession do not queue up,
+    *   the animation is retargeted to the newest value. Touching the
+    *   wheel stops the animation. Safe to call from any thread.
+    */
+
+   public void animateTo(final float value, final int durationMillis, final TimeInterpolator interpolator)
+   {
+      mController.animateTo(value, durationMillis * 1000000L, interpolator);
+      wakeUp();
+   }
+
+   /*
+    *   Current settings, one consistent snapshot
+    */
+
+   public WheelConfig getConfig()
+   {
+      return mController.getConfig();
+   }
+
+   /*
+    *   Apply all changes of the editor in one transaction. The render thread
+    *   either sees all of them or none, never a mix with older settings.
+    */
+
+   public void apply(final WheelConfig.Editor editor)
+   {
+      mController.apply(editor);
+      wakeUp();
+   }
+
+   public void setOrientation(final int orientation)
+   {
+      apply(new WheelConfig.Editor().setOrientation(orientation));
+   }
+
+   public void setOnValueChangedListener(final OnValueChangeListener listener)
+   {
+      mController.getDispatcher().setListener(listener);
+   }
+
+   /*
+    *   Called once the wheel has come to rest, after the last value change
+    */
+
+   public void setOnValueSettledListener(final OnValueSettleListener listener)
+   {
+      mController.getDispatcher().setSettleListener(listener);
+   }
+
+   /*
+    *   Report values rounded to multiples of step, the listener only
+    *   fires when the value moves to another step. 0 reports every change.
+    */
+
+   public void setValueStep(final float step)
+   {
+      mController.getDispatcher().setStep(step);
+   }
+
+   /*
+    *   Additionally write every value change, time stamped with the frame
+    *   time (System.nanoTime() base), into the given stream. A stream may be
+    *   shared by several wheels, null stops writing.
+    */
+
+   public void setValueSampleStream(final ValueSampleStream stream)
+   {
+      mController.setSampleStream(stream);
+   }
+
+   /*
+    *   Record the touch input of this wheel and its frames into a trace,
+    *   null stops recording. The writer is closed by the caller afterwards.
+    *   See InputTrace for what is recorded.
+    */
+
+   public void setInputTrace(final InputTrace.Writer writer)
+   {
+      mController.setTraceWriter(writer);
+   }
+
+   /*
+    *   Play the touch input of a trace back into this wheel at its original
+    *   pace, with the settings of this wheel. InputTraceReplay replays
+    *   headless and deterministically instead.
+    */
+
+   public void replayInputTrace(final InputTrace.Reader reader)
+   {
+      mController.replay(reader);
+      wakeUp();
+   }
+
+   /*
+    *   Upper bound for listener calls per second, 0 removes the limit
+    */
+
+   public void setDispatchRate(final int callsPerSecond)
+   {
+      mController.getDispatcher().setMaxRate(callsPerSecond);
+   }
+
+   public void setRange(final float min, final float max)
+   {
+      apply(new WheelConfig.Editor().setRange(min, max));
+   }
+
+   public void setRatio(final float ratio)
+   {
+      apply(new WheelConfig.Editor().setRatio(ratio));
+   }
+
+   public void setBoundaryMode(final int mode)
+   {
+      apply(new WheelConfig.Editor().setBoundaryMode(mode));
+   }
+
+   /*
+    *   Curve from wheel position to value, see ValueMapping
+    */
+
+   public void setValueMapping(final ValueMapping mapping)
+   {
+      apply(new WheelConfig.Editor().setMapping(mapping));
+   }
+
+   /*
+    *   Fast turns change the value by up to (1 + acceleration) times more
+    */
+
+   public void setAcceleration(final float acceleration)
+   {
+      apply(new WheelConfig.Editor().setAcceleration(acceleration));
+   }
+
+   /*
+    *   Fling speed from a least squares fit over the recent drag samples (default)
+    *   or, if disabled, from the last two samples only.
+    */
+
+   public void setVelocityEstimation(final boolean enabled)
+   {
+      apply(new WheelConfig.Editor().setVelocityEstimation(enabled));
+   }
+
+   /*
+    *   Draw the wheel where the finger is expected to be the given
+    *   number of milliseconds ahead, 0 disables prediction.
+    */
+
+   public void setTouchPrediction(final int millis)
+   {
+      apply(new WheelConfig.Editor().setTouchPrediction(millis));
+   }
+
+   /*
+    *   Draw the wheel from a pre-rendered sprite atlas shared by all wheels
+    *   of the same size, orientation and material. Cuts the per frame cost
+    *   to a single textured quad, at the price of some texture memory.
+    */
+
+   public void setCachedRendering(final boolean enabled)
+   {
+      apply(new WheelConfig.Editor().setCachedRendering(enabled));
+   }
+
+   /*
+    *   Draw the wheel analytically in a fragment shader on a single quad,
+    *   no mesh involved. Antialiased at any size without multisampling,
+    *   the ridges can be changed with setRidges(). GLES 2.0+ only, the
+    *   mesh is drawn otherwise. Takes precedence over cached rendering.
+    */
+
+   public void setProceduralRendering(final boolean enabled)
+   {
+      apply(new WheelConfig.Editor().setProceduralRendering(enabled));
+   }
+
+   /*
+    *   Ridges around the wheel and the share of a ridge period taken by
+    *   the ridge walls, procedural rendering only
+    */
+
+   public void setRidges(final int count, final float thickness)
+   {
+      apply(new WheelConfig.Editor().setRidges(count, thickness));
+   }
+
+   /*
+    *   Give up the GL surface of the wheel once it has been at rest for the
+    *   given time, for screens with many wheels that are mostly idle. The
+    *   view keeps showing the last frame, the next touch or value change
+    *   brings the surface back before the wheel moves. With all wheels
+    *   suspended the render thread and its context stop as well.
+    *   0 (default) keeps the surface. UI thread only.
+    */
+
+   public void setIdleTimeout(final int millis)
+   {
+      mIdleTimeout = Math.max(millis, 0);
+      if (mIdleTimeout == 0) {
+         removeCallbacks(mSuspendRunnable);
+         resume();
+      } else {
+         scheduleSuspend();
+      }
+   }
+
+   public int getIdleTimeout()
+   {
+      return mIdleTimeout;
+   }
+
+   /*
+    *   Upper bound for the texture memory of all sprite atlases
+    */
+
+   public static void setSpriteCacheBudget(final int bytes)
+   {
+      SpriteAtlasCache.setBudget(bytes);
+   }
+
+   /*
+    *   Store the wheel meshes in a compact quantized vertex format
+    *   (less than half the memory and vertex fetch bandwidth) instead of floats.
+    *   GLES 2.0+ only, applies to meshes uploaded afterwards, so it is best
+    *   set before the first wheel is shown.
+    */
+
+   public static void setQuantizedGeometry(final boolean quantized)
+   {
+      GLES20WheelRenderer.setQuantizedGeometry(quantized);
+   }
+
+   /*
+    *   Keep the GL surfaces of up to the given number of detached wheels
+    *   alive (e.g. scrolled out of a list, activity paused), together with
+    *   the render thread and context. A wheel attached again re-binds its
+    *   old SurfaceTexture and draws right away, its value and rotation
+    *   are kept anyway. 0 (default) releases everything on detach.
+    */
+
+   public static void setSurfacePoolSize(final int surfaces)
+   {
+      GLRenderEngine.getInstance().setSurfacePoolSize(surfaces);
+   }
+
+   /*
+    *   Pixel format, depth buffer and multisampling of the surfaces of all
+    *   wheels, SurfaceConfig.LOW_MEMORY cuts them to a third. Takes effect
+    *   when the render thread starts, so it is best set before the first
+    *   wheel is shown. The XML attributes surfaceFormat, depthBuffer and
+    *   multisampling of any wheel set it as well.
+    */
+
+   public static void setSurfaceConfig(final SurfaceConfig config)
+   {
+      GLRenderEngine.getInstance().setSurfaceConfig(config);
+   }
+
+   public static SurfaceConfig getSurfaceConfig()
+   {
+      return GLRenderEngine.getInstance().getSurfaceConfig();
+   }
+
+   /*
+    *   Forward ComponentCallbacks2.onTrimMemory() here to release
+    *   pooled surfaces and caches under memory pressure.
+    */
+
+   public static void trimMemory(final int level)
+   {
+      GLRenderEngine.getInstance().trimMemory(level);
+   }
+
+   /*
+    *   Frames drawn and frames skipped because the
+    *   wheel moved by less than a pixel since the last one
+    */
+
+   public long getDrawnFrameCount()
+   {
+      return mController.getDrawnFrameCount();
+   }
+
+   public long getSkippedFrameCount()
+   {
+      return mController.getSkippedFrameCount();
+   }
+
+   /*
+    * Parent has size constraints:
+    * MeasureSpec.EXACTLY     => X px or MATCH_PARENT
+    * MeasureSpec.AT_MOST     => WRAP_CONTENT
+    * Parent has no size constraints:
+    * MeasureSpec.UNSPECIFIED => WRAP_CONTENT
+    */
+
+   @Override
+   public void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+   {
+      super.onMeasure(widthMeasureSpec,heightMeasureSpec);
+
+      float wheelWidth;
+      float wheelHeight;
+
+      final int specModeW = MeasureSpec.getMode(widthMeasureSpec);
+      final int specModeH = MeasureSpec.getMode(heightMeasureSpec);
+      final int specWidth = MeasureSpec.getSize(widthMeasureSpec);
+      final int specHeight = MeasureSpec.getSize(heightMeasureSpec);
+
+      // Layout passes are frequent, only build the messages when they are wanted
+      final boolean debug = Log.isLoggable(LOG_TAG, Log.DEBUG);
+
+      if (debug) {
+         Log.d(LOG_TAG,"onMeasure() spec width -> "+specModeToString(specModeW)+":"+specWidth+
+                                   " spec height -> "+specModeToString(specModeH)+":"+specHeight);
+      }
+
+
+      if ((specModeW == MeasureSpec.EXACTLY) && (specModeH == MeasureSpec.EXACTLY)) {
+         setMeasuredDimension(specWidth, specHeight);
+         return;
+      }
+
+      if (mController.getConfig().orientation == Orientation.HORIZONTAL) {
+
+         if (specModeW == MeasureSpec.EXACTLY || specModeW == MeasureSpec.AT_MOST) {
+            wheelWidth = specWidth;
+         } else {
+            wheelWidth = mDensity * DEFAULT_WHEEL_DIAMETER;
+         }
+
+         wheelHeight = (specModeH == MeasureSpec.EXACTLY) ? specHeight : WHEEL_THICKNESS_RATIO * wheelWidth;
+
+         if (specModeH == MeasureSpec.AT_MOST) {
+            wheelHeight = Math.min(wheelHeight, specHeight);
+         }
+
+      } else {
+
+         // Make it as high as allowed
+         if (specModeH == MeasureSpec.EXACTLY || specModeH == MeasureSpec.AT_MOST) {
+            wheelHeight = specHeight;
+         } else {
+            // No limits -> use default height
+            wheelHeight = mDensity * DEFAULT_WHEEL_DIAMETER;
+         }
+
+         wheelWidth = (specModeW == MeasureSpec.EXACTLY) ? specWidth : WHEEL_THICKNESS_RATIO * wheelHeight;
+
+         if (specModeW == MeasureSpec.AT_MOST) {
+            wheelWidth = Math.min(wheelWidth, specWidth);
+         }
+      }
+
+      if (debug) {
+         Log.d(LOG_TAG,"onMeasure() results -> width:"+(int)wheelWidth+" height:"+(int)wheelHeight);
+      }
+      setMeasuredDimension((int) wheelWidth, (int) wheelHeight);
+   }
+
+   @Override
+   public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height)
+   {
+      Log.d(LOG_TAG, "onSurfaceTextureAvailable()");
+      mSuspended = false;
+      GLRenderEngine.getInstance().attach(mTarget, surface, width, height);
+      scheduleSuspend();
+   }
+
+   @Override
+   public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height)
+   {
+      Log.d(LOG_TAG, "onSurfaceTextureSizeChange()");
+      mTarget.mmWidth = width;
+      mTarget.mmHeight = height;
+      mTarget.invalidate();
+   }
+
+   /*
+    *   The render engine releases the SurfaceTexture once the EGL surface
+    *   on top of it is gone, or keeps both in its surface pool.
+    */
+
+   @Override
+   public boolean onSurfaceTextureDestroyed(SurfaceTexture surface)
+   {
+      Log.d(LOG_TAG, "onSurfaceTextureDestroyed()");
+      removeCallbacks(mSuspendRunnable);
+      mSuspended = false;
+      GLRenderEngine.getInstance().detach(mTarget);
+      return false;
+   }
+
+   @Override
+   public void onSurfaceTextureUpdated(SurfaceTexture surface)
+   {
+   }
+
+   /*
+    *   A pooled surface is handed back to the TextureView,
+    *   which then skips creating a new one.
+    */
+
+   @Override
+   protected void onAttachedToWindow()
+   {
+      Log.d(LOG_TAG, "onAttachedToWindow()");
+      super.onAttachedToWindow();
+
+      final SurfaceTexture surface = GLRenderEngine.getInstance().resume(mTarget);
+      if (surface != null) {
+         setSurfaceTexture(surface);
+         scheduleSuspend();
+      }
+   }
+
+   @Override
+   protected void onDetachedFromWindow()
+   {
+      Log.d(LOG_TAG, "onDetachedFromWindow()");
+      super.onDetachedFromWindow();
+   }
+
+   @Override
+   public boolean onTouchEvent(MotionEvent event)
+   {
+      final boolean horizontal = (mController.getConfig().orientation == Orientation.HORIZONTAL);
+      final WheelController controller = mController;
+      final int historySize = event.getHistorySize();
+      final int action;
+
+      // The surface is back before the render thread sees the first sample
+      if (mSuspended) {
+         resume();
+      }
+
+      // Batched samples since the last event, event times are uptime millis
+      for (int i = 0; i < historySize; i++) {
+         controller.offerTouch(TouchRingBuffer.ACTION_MOVE,
+                               horizontal ? -event.getHistoricalX(i) : event.getHistoricalY(i),
+                               event.getHistoricalEventTime(i) * 1000000L);
+      }
+
+      switch (event.getActionMasked()) {
+         case MotionEvent.ACTION_DOWN:
+            action = TouchRingBuffer.ACTION_DOWN;
+            break;
+         case MotionEvent.ACTION_MOVE:
+            action = TouchRingBuffer.ACTION_MOVE;
+            break;
+         case MotionEvent.ACTION_UP:
+            action = TouchRingBuffer.ACTION_UP;
+            break;
+         default:
+            action = TouchRingBuffer.ACTION_CANCEL;
+            break;
+      }
+
+      controller.offerTouch(action, horizontal ? -event.getX() : event.getY(), event.getEventTime() * 1000000L);
+
+      GLRenderEngine.getInstance().requestFrame();
+
+      return true;
+   }
+
+   /*
+    *   UI thread, (re)start the idle timeout
+    */
+
+   private void scheduleSuspend()
+   {
+      removeCallbacks(mSuspendRunnable);
+      if (mIdleTimeout > 0 && !mSuspended) {
+         postDelayed(mSuspendRunnable, mIdleTimeout);
+      }
+   }
+
+   /*
+    *   Still idle after the timeout, otherwise the next settle starts it again
+    */
+
+   private void suspend()
+   {
+      if (mSuspended || mIdleTimeout == 0 || !isAvailable() || !mController.isIdle()) {
+         return;
+      }
+
+      if (GLRenderEngine.getInstance().suspend(mTarget)) {
+         Log.d(LOG_TAG, "Idle, GL surface suspended");
+         mSuspended = true;
+      } else {
+         scheduleSuspend();
+      }
+   }
+
+   private void resume()
+   {
+      if (!mSuspended) {
+         return;
+      }
+
+      mSuspended = false;
+      GLRenderEngine.getInstance().attach(mTarget, getSurfaceTexture(), mTarget.mmWidth, mTarget.mmHeight);
+      scheduleSuspend();
+   }
+
+   /*
+    *   Any thread, the wheel is about to move or change its looks
+    */
+
+   private void wakeUp()
+   {
+      if (mSuspended) {
+         post(mResumeRunnable);
+      }
+   }
+
+   /*
+    *   The wheel fills the whole surface of the view
+    */
+
+   private class WheelTarget extends GLRenderEngine.Target
+   {
+      @Override
+      boolean update(final long frameTimeNanos, final long deltaNanos)
+      {
+         return mController.update(frameTimeNanos, deltaNanos, mmWidth, mmHeight);
+      }
+
+      @Override
+      boolean isActive()
+      {
+         return mController.isActive();
+      }
+
+      @Override
+      void draw(final WheelRenderer renderer, final int width, final int height)
+      {
+         renderer.beginFrame(width, height);
+         mController.draw(renderer, 0, 0, width, height);
+      }
+   }
+
+   /*
+    *   Called on the UI thread while the wheel moves, up to the maximum rate.
+    *   The wheel itself allocates nothing per frame, a listener that formats
+    *   or boxes the value brings the garbage collector back into the frame.
+    */
+
+   public static interface OnValueChangeListener
+   {
+      public void onValueChanged(View v, float value);
+   }
+
+   public static interface OnValueSettleListener
+   {
+      public void onValueSettled(View v, float value);
+   }
+
+   private String specModeToString(int mode)
+   {
+      switch (mode) {
+         case MeasureSpec.EXACTLY:
+            return "EXACTLY";
+         case MeasureSpec.UNSPECIFIED:
+            return "UNSPECIFIED";
+         case MeasureSpec.AT_MOST:
+            return "AT_MOST";
+         default:
+            return "???";
+      }
+   }
+
+}
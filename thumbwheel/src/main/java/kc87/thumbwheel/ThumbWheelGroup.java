@@ -0,0 +1,456 @@
+package kc87.thumbwheel;
+
+import android.animation.TimeInterpolator;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.SurfaceTexture;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.TextureView;
+import android.view.TextureView.SurfaceTextureListener;
+
+/*
+ *   Many wheels in a single TextureView, e.g. for mixer screens.
+ *   The wheels are laid out in a grid and share one EGL surface, so a
+ *   frame is one pass over all wheels followed by a single buffer swap,
+ *   instead of one buffer queue, surface and composition per wheel.
+ *   Every wheel has its own settings and listeners (see Wheel), several
+ *   fingers can turn different wheels at the same time.
+ */
+
+public class ThumbWheelGroup extends TextureView implements SurfaceTextureListener
+{
+   private static final String LOG_TAG = "ThumbWheelGroup";
+   private static final int MAX_POINTERS = 16;
+
+   // Default values for custom xml attributes
+   private static final int DEFAULT_WHEEL_COUNT = 8;
+   private static final int DEFAULT_COLUMNS = 0;
+   private static final int DEFAULT_WHEEL_SPACING = 0;
+   private static final int DEFAULT_ORIENTATION = ThumbWheel.Orientation.VERTICAL;
+
+   private final GroupTarget mTarget = new GroupTarget();
+   private final Wheel[] mWheels;
+   private final WheelController[] mControllers;
+   // Wheel index per touch pointer id, -1 if the pointer hit no wheel
+   private final int[] mPointerWheels = new int[MAX_POINTERS];
+   private final int[] mTouchBounds = new int[4];
+   private volatile int mColumns;
+   private volatile int mSpacing;
+
+   public ThumbWheelGroup(final Context context, final int wheelCount)
+   {
+      this(context, null, wheelCount);
+   }
+
+   public ThumbWheelGroup(final Context context, final AttributeSet attrs)
+   {
+      this(context, attrs, DEFAULT_WHEEL_COUNT);
+   }
+
+   private ThumbWheelGroup(final Context context, final AttributeSet attrs, int wheelCount)
+   {
+      super(context, attrs);
+
+      int columns = DEFAULT_COLUMNS;
+      int spacing = DEFAULT_WHEEL_SPACING;
+      int orientation = DEFAULT_ORIENTATION;
+
+      if (attrs != null) {
+         TypedArray typedArray = context.getTheme().obtainStyledAttributes(attrs, R.styleable.ThumbWheelGroup, 0, 0);
+         wheelCount = typedArray.getInt(R.styleable.ThumbWheelGroup_wheelCount, wheelCount);
+         columns = typedArray.getInt(R.styleable.ThumbWheelGroup_columns, DEFAULT_COLUMNS);
+         spacing = typedArray.getDimensionPixelSize(R.styleable.ThumbWheelGroup_wheelSpacing, DEFAULT_WHEEL_SPACING);
+         orientation = typedArray.getInt(R.styleable.ThumbWheelGroup_orientation, DEFAULT_ORIENTATION);
+      }
+
+      wheelCount = Math.max(wheelCount, 1);
+      mWheels = new Wheel[wheelCount];
+      mControllers = new WheelController[wheelCount];
+      for (int i = 0; i < wheelCount; i++) {
+         mControllers[i] = new WheelController(this, mTarget, ThumbWheel.defaultConfig(orientation & 1));
+         mWheels[i] = new Wheel(mControllers[i]);
+      }
+
+      mColumns = columns;
+      mSpacing = Math.max(spacing, 0);
+      for (int i = 0; i < MAX_POINTERS; i++) {
+         mPointerWheels[i] = -1;
+      }
+
+      setSurfaceTextureListener(this);
+   }
+
+   public int getWheelCount()
+   {
+      return mWheels.length;
+   }
+
+   public Wheel getWheel(final int index)
+   {
+      return mWheels[index];
+   }
+
+   /*
+    *   Wheels per row, 0 puts all of them into a single row
+    */
+
+   public void setColumns(final int columns)
+   {
+      mColumns = Math.max(columns, 0);
+      mTarget.invalidate();
+   }
+
+   /*
+    *   Gap between neighboring wheels in pixels
+    */
+
+   public void setWheelSpacing(final int pixels)
+   {
+      mSpacing = Math.max(pixels, 0);
+      mTarget.invalidate();
+   }
+
+   /*
+    *   Grid cell of wheel i on a surface of the given size,
+    *   returns left, top (view coordinates), width and height in bounds.
+    */
+
+   private void getCell(final int i, final int width, final int height, final int[] bounds)
+   {
+      final int count = mControllers.length;
+      final int columns = (mColumns > 0) ? Math.min(mColumns, count) : count;
+      final int rows = (count + columns - 1) / columns;
+      final int spacing = mSpacing;
+      final int cellWidth = Math.max((width - (columns - 1) * spacing) / columns, 1);
+      final int cellHeight = Math.max((height - (rows - 1) * spacing) / rows, 1);
+
+      bounds[0] = (i % columns) * (cellWidth + spacing);
+      bounds[1] = (i / columns) * (cellHeight + spacing);
+      bounds[2] = cellWidth;
+      bounds[3] = cellHeight;
+   }
+
+   private int wheelAt(final float x, final float y, final int[] bounds)
+   {
+      for (int i = 0; i < mControllers.length; i++) {
+         getCell(i, getWidth(), getHeight(), bounds);
+         if (x >= bounds[0] && x < bounds[0] + bounds[2] && y >= bounds[1] && y < bounds[1] + bounds[3]) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   @Override
+   public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height)
+   {
+      Log.d(LOG_TAG, "onSurfaceTextureAvailable()");
+      GLRenderEngine.getInstance().attach(mTarget, surface, width, height);
+   }
+
+   @Override
+   public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height)
+   {
+      mTarget.mmWidth = width;
+      mTarget.mmHeight = height;
+      mTarget.invalidate();
+   }
+
+   @Override
+   public boolean onSurfaceTextureDestroyed(SurfaceTexture surface)
+   {
+      Log.d(LOG_TAG, "onSurfaceTextureDestroyed()");
+      GLRenderEngine.getInstance().detach(mTarget);
+      return false;
+   }
+
+   @Override
+   public void onSurfaceTextureUpdated(SurfaceTexture surface)
+   {
+   }
+
+   @Override
+   protected void onAttachedToWindow()
+   {
+      super.onAttachedToWindow();
+
+      // Surface kept in the pool of the render engine, see ThumbWheel.setSurfacePoolSize()
+      final SurfaceTexture surface = GLRenderEngine.getInstance().resume(mTarget);
+      if (surface != null) {
+         setSurfaceTexture(surface);
+      }
+   }
+
+   /*
+    *   A pointer belongs to the wheel it went down on until it goes up
+    */
+
+   @Override
+   public boolean onTouchEvent(MotionEvent event)
+   {
+      final int[] bounds = mTouchBounds;
+      final int actionIndex = event.getActionIndex();
+      final long eventTime = event.getEventTime() * 1000000L;
+
+      switch (event.getActionMasked()) {
+         case MotionEvent.ACTION_DOWN:
+         case MotionEvent.ACTION_POINTER_DOWN: {
+            final int id = event.getPointerId(actionIndex);
+            if (id >= MAX_POINTERS) {
+               break;
+            }
+            final int wheel = wheelAt(event.getX(actionIndex), event.getY(actionIndex), bounds);
+            if (wheel >= 0 && !isCaptured(wheel)) {
+               mPointerWheels[id] = wheel;
+               offer(wheel, TouchRingBuffer.ACTION_DOWN, event.getX(actionIndex), event.getY(actionIndex), eventTime);
+            }
+            break;
+         }
+         case MotionEvent.ACTION_MOVE: {
+            final int historySize = event.getHistorySize();
+            for (int p = 0; p < event.getPointerCount(); p++) {
+               final int id = event.getPointerId(p);
+               final int wheel = (id < MAX_POINTERS) ? mPointerWheels[id] : -1;
+               if (wheel < 0) {
+                  continue;
+               }
+               // Batched samples since the last event, event times are uptime millis
+               for (int h = 0; h < historySize; h++) {
+                  offer(wheel, TouchRingBuffer.ACTION_MOVE, event.getHistoricalX(p, h), event.getHistoricalY(p, h),
+                        event.getHistoricalEventTime(h) * 1000000L);
+               }
+               offer(wheel, TouchRingBuffer.ACTION_MOVE, event.getX(p), event.getY(p), eventTime);
+            }
+            break;
+         }
+         case MotionEvent.ACTION_UP:
+         case MotionEvent.ACTION_POINTER_UP: {
+            final int id = event.getPointerId(actionIndex);
+            final int wheel = (id < MAX_POINTERS) ? mPointerWheels[id] : -1;
+            if (wheel >= 0) {
+               offer(wheel, TouchRingBuffer.ACTION_UP, event.getX(actionIndex), event.getY(actionIndex), eventTime);
+               mPointerWheels[id] = -1;
+            }
+            break;
+         }
+         default:
+            for (int id = 0; id < MAX_POINTERS; id++) {
+               if (mPointerWheels[id] >= 0) {
+                  offer(mPointerWheels[id], TouchRingBuffer.ACTION_CANCEL, 0.0f, 0.0f, eventTime);
+                  mPointerWheels[id] = -1;
+               }
+            }
+            break;
+      }
+
+      GLRenderEngine.getInstance().requestFrame();
+
+      return true;
+   }
+
+   private boolean isCaptured(final int wheel)
+   {
+      for (int id = 0; id < MAX_POINTERS; id++) {
+         if (mPointerWheels[id] == wheel) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private void offer(final int wheel, final int action, final float x, final float y, final long timeNanos)
+   {
+      final WheelController controller = mControllers[wheel];
+      final boolean horizontal = (controller.getConfig().orientation == ThumbWheel.Orientation.HORIZONTAL);
+      controller.offerTouch(action, horizontal ? -x : y, timeNanos);
+   }
+
+   /*
+    *   All wheels are advanced every frame. If any of them moved
+    *   visibly, the whole surface is redrawn and swapped once.
+    */
+
+   private class GroupTarget extends GLRenderEngine.Target
+   {
+      // Render thread only
+      private final int[] mmBounds = new int[4];
+
+      @Override
+      boolean update(final long frameTimeNanos, final long deltaNanos)
+      {
+         final int width = mmWidth;
+         final int height = mmHeight;
+         boolean dirty = false;
+
+         for (int i = 0; i < mControllers.length; i++) {
+            getCell(i, width, height, mmBounds);
+            dirty |= mControllers[i].update(frameTimeNanos, deltaNanos, mmBounds[2], mmBounds[3]);
+         }
+         return dirty;
+      }
+
+      @Override
+      boolean isActive()
+      {
+         for (WheelController controller : mControllers) {
+            if (controller.isActive()) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      @Override
+      void draw(final WheelRenderer renderer, final int width, final int height)
+      {
+         renderer.beginFrame(width, height);
+         for (int i = 0; i < mControllers.length; i++) {
+            getCell(i, width, height, mmBounds);
+            // GL window coordinates start at the bottom
+            mControllers[i].draw(renderer, mmBounds[0], height - mmBounds[1] - mmBounds[3], mmBounds[2], mmBounds[3]);
+         }
+      }
+   }
+
+   /*
+    *   One wheel of the group, same settings and listeners as a ThumbWheel.
+    *   The listeners receive the group as view.
+    */
+
+   public static final class Wheel
+   {
+      private final WheelController mController;
+
+      private Wheel(final WheelController controller)
+      {
+         mController = controller;
+      }
+
+      public float getValue()
+      {
+         return mController.getValue();
+      }
+
+      public void setValue(final float value)
+      {
+         animateTo(value, 0, null);
+      }
+
+      public void animateTo(final float value, final int durationMillis, final TimeInterpolator interpolator)
+      {
+         mController.animateTo(value, durationMillis * 1000000L, interpolator);
+      }
+
+      public WheelConfig getConfig()
+      {
+         return mController.getConfig();
+      }
+
+      public void apply(final WheelConfig.Editor editor)
+      {
+         mController.apply(editor);
+      }
+
+      public void setOrientation(final int orientation)
+      {
+         apply(new WheelConfig.Editor().setOrientation(orientation));
+      }
+
+      public void setRange(final float min, final float max)
+      {
+         apply(new WheelConfig.Editor().setRange(min, max));
+      }
+
+      public void setRatio(final float ratio)
+      {
+         apply(new WheelConfig.Editor().setRatio(ratio));
+      }
+
+      public void setBoundaryMode(final int mode)
+      {
+         apply(new WheelConfig.Editor().setBoundaryMode(mode));
+      }
+
+      public void setValueMapping(final ValueMapping mapping)
+      {
+         apply(new WheelConfig.Editor().setMapping(mapping));
+      }
+
+      public void setAcceleration(final float acceleration)
+      {
+         apply(new WheelConfig.Editor().setAcceleration(acceleration));
+      }
+
+      public void setVelocityEstimation(final boolean enabled)
+      {
+         apply(new WheelConfig.Editor().setVelocityEstimation(enabled));
+      }
+
+      public void setTouchPrediction(final int millis)
+      {
+         apply(new WheelConfig.Editor().setTouchPrediction(millis));
+      }
+
+      public void setCachedRendering(final boolean enabled)
+      {
+         apply(new WheelConfig.Editor().setCachedRendering(enabled));
+      }
+
+      public void setProceduralRendering(final boolean enabled)
+      {
+         apply(new WheelConfig.Editor().setProceduralRendering(enabled));
+      }
+
+      public void setRidges(final int count, final float thickness)
+      {
+         apply(new WheelConfig.Editor().setRidges(count, thickness));
+      }
+
+      public void setOnValueChangedListener(final ThumbWheel.OnValueChangeListener listener)
+      {
+         mController.getDispatcher().setListener(listener);
+      }
+
+      public void setOnValueSettledListener(final ThumbWheel.OnValueSettleListener listener)
+      {
+         mController.getDispatcher().setSettleListener(listener);
+      }
+
+      public void setValueStep(final float step)
+      {
+         mController.getDispatcher().setStep(step);
+      }
+
+      public void setDispatchRate(final int callsPerSecond)
+      {
+         mController.getDispatcher().setMaxRate(callsPerSecond);
+      }
+
+      public void setValueSampleStream(final ValueSampleStream stream)
+      {
+         mController.setSampleStream(stream);
+      }
+
+      public void setInputTrace(final InputTrace.Writer writer)
+      {
+         mController.setTraceWriter(writer);
+      }
+
+      public void replayInputTrace(final InputTrace.Reader reader)
+      {
+         mController.replay(reader);
+      }
+
+      public long getDrawnFrameCount()
+      {
+         return mController.getDrawnFrameCount();
+      }
+
+      public long getSkippedFrameCount()
+      {
+         return mController.getSkippedFrameCount();
+      }
+   }
+}
@@ -0,0 +1,122 @@
+package kc87.thumbwheel;
+
+import android.animation.TimeInterpolator;
+
+/*
+ *   Programmatic value changes of one wheel, animated by the render loop.
+ *   Any thread may request a new target, requests are not queued: the
+ *   newest one wins and the running animation is retargeted from where
+ *   the wheel is at that moment. The request is published with a seqlock,
+ *   writers serialize on a lock, the render thread never blocks.
+ */
+
+final class ValueAnimation implements WheelState.Animation
+{
+   private final Object mWriteLock = new Object();
+
+   // Seqlock, odd while a request is being written
+   private volatile int mSequence = 0;
+   private volatile float mRequestValue = 0.0f;
+   private volatile long mRequestDuration = 0;
+   private volatile TimeInterpolator mRequestInterpolator;
+
+   // Render thread only
+   private int mSeenSequence = 0;
+   private boolean mRunning = false;
+   private float mFrom;
+   private float mTo;
+   private long mStartNanos;
+   private long mDurationNanos;
+   private TimeInterpolator mInterpolator;
+
+   /*
+    *   Any thread. The value is in reported units (mapped and scaled by the ratio),
+    *   a duration of 0 jumps there with the next frame.
+    */
+
+   void request(final float value, final long durationNanos, final TimeInterpolator interpolator)
+   {
+      synchronized (mWriteLock) {
+         mSequence++;
+         mRequestValue = value;
+         mRequestDuration = Math.max(durationNanos, 0);
+         mRequestInterpolator = interpolator;
+         mSequence++;
+      }
+   }
+
+   /*
+    *   Render thread only
+    */
+
+   @Override
+   public boolean isPending()
+   {
+      return mSequence != mSeenSequence;
+   }
+
+   @Override
+   public boolean isRunning()
+   {
+      return mRunning;
+   }
+
+   /*
+    *   Pick up a new request and move the wheel to its position at frameTimeNanos.
+    *   Touching the wheel cancels the animation. Returns true if the value changed.
+    */
+
+   @Override
+   public boolean update(final WheelPhysics physics, final WheelConfig config, final long frameTimeNanos)
+   {
+      if (mSequence != mSeenSequence) {
+         int sequence;
+         float value;
+         long duration;
+         TimeInterpolator interpolator;
+
+         // Retry until no writer interfered
+         do {
+            sequence = mSequence;
+            while ((sequence & 1) != 0) {
+               Thread.yield();
+               sequence = mSequence;
+            }
+            value = mRequestValue;
+            duration = mRequestDuration;
+            interpolator = mRequestInterpolator;
+         } while (sequence != mSequence);
+
+         mSeenSequence = sequence;
+         mFrom = physics.getValue();
+         mTo = config.mapping.unmap(value / config.ratio);
+         mStartNanos = frameTimeNanos;
+         mDurationNanos = duration;
+         mInterpolator = interpolator;
+         mRunning = true;
+      }
+
+      if (!mRunning) {
+         return false;
+      }
+
+      if (physics.isHeld()) {
+         mRunning = false;
+         return false;
+      }
+
+      final float before = physics.getValue();
+      final long elapsed = frameTimeNanos - mStartNanos;
+      float fraction = (mDurationNanos > 0) ? (float) elapsed / mDurationNanos : 1.0f;
+
+      if (fraction >= 1.0f) {
+         fraction = 1.0f;
+         mRunning = false;
+      } else if (mInterpolator != null) {
+         fraction = mInterpolator.getInterpolation(Math.max(fraction, 0.0f));
+      }
+
+      physics.moveTo(mFrom + (mTo - mFrom) * fraction);
+      return physics.getValue() != before;
+   }
+}
@@ -0,0 +1,144 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+/*
+ *   Delivers value changes of one wheel to its listeners on the UI thread.
+ *   The render thread only publishes the newest value, intermediate values
+ *   are coalesced. Listeners are called at most at the maximum rate and only
+ *   if the value moved to another step. Once the wheel comes to rest the
+ *   resting value is always delivered, followed by the settle callback.
+ *   No allocation after construction.
+ */
+
+final class ValueDispatcher implements Runnable
+{
+   static final int DEFAULT_MAX_RATE = 30;
+
+   private final View mView;
+   private final Handler mHandler = new Handler(Looper.getMainLooper());
+   private final AtomicBoolean mPosted = new AtomicBoolean();
+
+   private volatile float mValue = 0.0f;
+   private volatile boolean mSettled = true;
+
+   // UI thread only
+   private ThumbWheel.OnValueChangeListener mListener;
+   private ThumbWheel.OnValueSettleListener mSettleListener;
+   private Runnable mSettleCallback;
+   private long mMinIntervalNanos = 1000000000L / DEFAULT_MAX_RATE;
+   private float mStep = 0.0f;
+   private float mDeliveredValue = Float.NaN;
+   private boolean mSettleDelivered = true;
+   private long mLastDispatchNanos = 0;
+
+   ValueDispatcher(final View view)
+   {
+      mView = view;
+   }
+
+   void setListener(final ThumbWheel.OnValueChangeListener listener)
+   {
+      mListener = listener;
+      mDeliveredValue = Float.NaN;
+   }
+
+   void setSettleListener(final ThumbWheel.OnValueSettleListener listener)
+   {
+      mSettleListener = listener;
+   }
+
+   /*
+    *   Internal, run whenever the wheel comes to rest, before the settle listener
+    */
+
+   void setSettleCallback(final Runnable callback)
+   {
+      mSettleCallback = callback;
+   }
+
+   /*
+    *   Calls per second, 0 or less removes the limit
+    */
+
+   void setMaxRate(final int callsPerSecond)
+   {
+      mMinIntervalNanos = (callsPerSecond > 0) ? 1000000000L / callsPerSecond : 0;
+   }
+
+   /*
+    *   Reported values are rounded to multiples of step, 0 reports every change
+    */
+
+   void setStep(final float step)
+   {
+      mStep = Math.max(step, 0.0f);
+      mDeliveredValue = Float.NaN;
+   }
+
+   /*
+    *   Newest value and whether the wheel is at rest, any thread
+    */
+
+   void publish(final float value, final boolean settled)
+   {
+      mValue = value;
+      mSettled = settled;
+      if (mPosted.compareAndSet(false, true)) {
+         mHandler.post(this);
+      }
+   }
+
+   @Override
+   public void run()
+   {
+      final long now = System.nanoTime();
+      final long wait = mLastDispatchNanos + mMinIntervalNanos - now;
+
+      // Too early, try again once the interval is over
+      if (wait > 0) {
+         mHandler.postDelayed(this, wait / 1000000L + 1);
+         return;
+      }
+
+      mPosted.set(false);
+
+      final boolean settled = mSettled;
+      final float value = quantize(mValue);
+      final boolean metrics = WheelMetrics.isEnabled();
+
+      if (mListener != null && value != mDeliveredValue) {
+         mDeliveredValue = value;
+         mLastDispatchNanos = now;
+         mListener.onValueChanged(mView, value);
+         if (metrics) {
+            WheelMetrics.record(WheelMetrics.DISPATCH_TIME, System.nanoTime() - now);
+         }
+      }
+
+      if (!settled) {
+         mSettleDelivered = false;
+      } else if (!mSettleDelivered) {
+         mSettleDelivered = true;
+         if (mSettleCallback != null) {
+            mSettleCallback.run();
+         }
+         if (mSettleListener != null) {
+            final long start = metrics ? System.nanoTime() : 0;
+            mSettleListener.onValueSettled(mView, value);
+            if (metrics) {
+               WheelMetrics.record(WheelMetrics.DISPATCH_TIME, System.nanoTime() - start);
+            }
+         }
+      }
+   }
+
+   private float quantize(final float value)
+   {
+      return (mStep > 0.0f) ? Math.round((double) value / mStep) * mStep : value;
+   }
+}
@@ -0,0 +1,201 @@
+package kc87.thumbwheel;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import android.animation.TimeInterpolator;
+import android.view.View;
+
+/*
+ *   One logical wheel, independent of the view showing it.
+ *   ThumbWheel shows one controller in its own TextureView, ThumbWheelGroup
+ *   shows many of them in a single one. Settings and touch input come from
+ *   the UI thread, update() and draw() run on the render thread.
+ *   The frame step itself is WheelState, motion is left to WheelPhysics.
+ *
+ *   Touch input, update(), draw() and the value dispatch allocate nothing
+ *   after construction. AllocationGuardTest (thumbwheel-core) runs the
+ *   WheelState part of that path, not covered are ValueAnimation.update()
+ *   (stood in for by the test), the ValueDispatcher Handler and the drawing.
+ */
+
+final class WheelController implements WheelState.Host
+{
+   // GL material parameters
+   private static final float matDBlue[] = new float[]{0.0f, 0.2f, 0.8f, 0.0f};
+   private static final float matSBlue[] = new float[]{0.0f, 0.0f, 0.2f, 0.0f};
+   private static final float matDRed[] = new float[]{0.4f, 0.0f, 0.0f, 0.0f};
+   private static final float matSRed[] = new float[]{0.6f, 0.0f, 0.0f, 0.0f};
+
+   private static final float matDGray[] = new float[]{0.5f, 0.5f, 0.5f, 0.0f};
+   private static final float matSGray[] = new float[]{0.1f, 0.1f, 0.1f, 0.0f};
+   private static final float matDWhite[] = new float[]{0.3f, 0.3f, 0.3f, 0.0f};
+   private static final float matSWhite[] = new float[]{0.8f, 0.8f, 0.8f, 0.0f};
+
+   private final float mMatDefInner[];
+   private final float mMatSpecInner[];
+   private final float mMatDefOuter[];
+   private final float mMatSpecOuter[];
+
+   private final GLRenderEngine.Target mTarget;
+   private final ValueAnimation mAnimation = new ValueAnimation();
+   private final ValueDispatcher mDispatcher;
+   private final WheelState mState;
+   private final AtomicReference<WheelConfig> mConfig = new AtomicReference<WheelConfig>();
+   private volatile long mDrawnFrames = 0;
+
+   // Render thread only, draw() uses the same config snapshot as update()
+   private WheelConfig mFrameConfig;
+
+   /*
+    *   The view is passed to the listeners, the target is
+    *   the render target the wheel is drawn into.
+    */
+
+   WheelController(final View view, final GLRenderEngine.Target target, final WheelConfig config)
+   {
+      mTarget = target;
+      mDispatcher = new ValueDispatcher(view);
+      mState = new WheelState(config, mAnimation, this);
+      mConfig.set(config);
+      mFrameConfig = config;
+
+      /*
+      mMatDefInner = matDRed;
+      mMatSpecInner = matSRed;
+      mMatDefOuter = matDBlue;
+      mMatSpecOuter = matSBlue;
+      */
+      mMatDefInner = matDWhite;
+      mMatSpecInner = matSWhite;
+      mMatDefOuter = matDGray;
+      mMatSpecOuter = matSGray;
+   }
+
+   float getValue()
+   {
+      return mState.getValue();
+   }
+
+   void animateTo(final float value, final long durationNanos, final TimeInterpolator interpolator)
+   {
+      mAnimation.request(value, durationNanos, interpolator);
+      GLRenderEngine.getInstance().requestFrame();
+   }
+
+   WheelConfig getConfig()
+   {
+      return mConfig.get();
+   }
+
+   void apply(final WheelConfig.Editor editor)
+   {
+      WheelConfig base;
+      do {
+         base = mConfig.get();
+      } while (!mConfig.compareAndSet(base, editor.applyTo(base)));
+
+      mTarget.invalidate();
+   }
+
+   ValueDispatcher getDispatcher()
+   {
+      return mDispatcher;
+   }
+
+   void setSampleStream(final ValueSampleStream stream)
+   {
+      mState.setSampleStream(stream);
+   }
+
+   /*
+    *   Record every frame and consumed touch sample into the writer, null stops
+    */
+
+   void setTraceWriter(final InputTrace.Writer writer)
+   {
+      mState.setTraceWriter(writer);
+   }
+
+   /*
+    *   Feed the touch samples of a trace into this wheel at their original
+    *   pace, starting with the next frame and from the recorded start value
+    */
+
+   void replay(final InputTrace.Reader reader)
+   {
+      mState.replay(reader);
+      GLRenderEngine.getInstance().requestFrame();
+   }
+
+   long getDrawnFrameCount()
+   {
+      return mDrawnFrames;
+   }
+
+   long getSkippedFrameCount()
+   {
+      return mState.getSkippedFrameCount();
+   }
+
+   /*
+    *   UI thread, position is along the drag axis in pixels
+    */
+
+   void offerTouch(final int action, final float position, final long timeNanos)
+   {
+      mState.offerTouch(action, position, timeNanos);
+   }
+
+   @Override
+   public void touched(final long timeNanos)
+   {
+      mTarget.touched(timeNanos);
+   }
+
+   @Override
+   public void publish(final float value, final boolean settled)
+   {
+      mDispatcher.publish(value, settled);
+   }
+
+   /*
+    *   Advance the wheel, width and height are its size in pixels.
+    *   Returns true if it moved visibly since it was drawn last.
+    */
+
+   boolean update(final long frameTimeNanos, final long deltaNanos, final int width, final int height)
+   {
+      final WheelConfig config = mConfig.get();
+      final int length = (config.orientation == ThumbWheel.Orientation.HORIZONTAL) ? width : height;
+
+      mFrameConfig = config;
+      return mState.update(config, frameTimeNanos, deltaNanos, length);
+   }
+
+   boolean isActive()
+   {
+      return mState.isActive();
+   }
+
+   /*
+    *   At rest and not held, a hint when read off the render thread
+    */
+
+   boolean isIdle()
+   {
+      return mState.isIdle();
+   }
+
+   /*
+    *   Draw into the given rectangle of the current surface (GL window coordinates)
+    */
+
+   void draw(final WheelRenderer renderer, final int x, final int y, final int width, final int height)
+   {
+      final WheelConfig config = mFrameConfig;
+
+      mDrawnFrames++;
+      renderer.drawWheel(x, y, width, height, mState.drawRotation(), config,
+                         mMatDefOuter, mMatSpecOuter, mMatDefInner, mMatSpecInner);
+   }
+}
@@ -0,0 +1,45 @@
+package kc87.thumbwheel;
+
+/*
+ *   Draws wheels into the current EGL surface of the render engine.
+ *   One renderer per GL context, the backend is chosen at context creation.
+ *   All methods are called on the render thread only.
+ */
+
+abstract class WheelRenderer
+{
+   // GL light source parameters
+   static final float lightPosition[] = new float[]{0.0f, 0.0f, 10.0f, 0.0f};
+   static final float lightSColor[] = new float[]{1.0f, 1.0f, 1.0f, 0.0f};
+   static final float lightDColor[] = new float[]{1.0f, 1.0f, 1.0f, 0.0f};
+   static final float matShininess[] = new float[]{100.0f};
+
+   /*
+    *   Set up the GL state shared by all wheels.
+    *   Called once the context is current.
+    */
+   abstract void init();
+
+   /*
+    *   Start a new frame on a surface of the given size, clears it
+    */
+   abstract void beginFrame(final int width, final int height);
+
+   /*
+    *   Draw one wheel into the given rectangle of the surface, in GL window
+    *   coordinates (origin bottom left). Orientation and the way of drawing
+    *   (mesh, cached or procedural) come from config, a backend falls back
+    *   to the mesh for ways it does not support.
+    */
+   abstract void drawWheel(final int x, final int y, final int width, final int height,
+                           final float rotation, final WheelConfig config,
+                           final float[] matDiffuseOuter, final float[] matSpecularOuter,
+                           final float[] matDiffuseInner, final float[] matSpecularInner);
+
+   /*
+    *   Free whatever can be rebuilt on demand, called under memory pressure
+    */
+   void trimMemory()
+   {
+   }
+}